@@ -0,0 +1,85 @@
+/*
+ * BinaryProtocol.java
+ */
+package jhelp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+
+/**
+ * Protocol which transports {@link jhelp.Data} objects as frames of
+ * {@link jhelp.DataCodec}. The object must be read by one thread at a time,
+ * while writing threads are serialized by the object.
+ */
+public class BinaryProtocol implements WireProtocol {
+
+    /**
+     * Name of the protocol in configuration files.
+     */
+    public static final String NAME = "binary";
+
+    private DataInputStream input;
+    private OutputStream output;
+    private DataCodec readCodec = new DataCodec();
+    private DataCodec writeCodec;
+    private byte[] payload = new byte[512];
+    private ByteBuffer payloadBuffer = ByteBuffer.wrap(payload);
+
+    /**
+     * Creates a new instance of <code>BinaryProtocol</code>.
+     *
+     * @param in input stream of the connection.
+     * @param out output stream of the connection.
+     * @param version version of frames negotiated by {@link Handshake}.
+     */
+    public BinaryProtocol(InputStream in, OutputStream out, byte version) {
+        writeCodec = new DataCodec(version);
+        input = new DataInputStream(in instanceof BufferedInputStream
+                ? in : new BufferedInputStream(in));
+        output = new BufferedOutputStream(out);
+    }
+
+    @Override
+    public Data read() throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > DataCodec.MAX_FRAME) {
+            throw new StreamCorruptedException("Wrong frame length " + length);
+        }
+        if (payload.length < length) {
+            payload = new byte[Math.max(length, payload.length * 2)];
+            payloadBuffer = ByteBuffer.wrap(payload);
+        }
+        input.readFully(payload, 0, length);
+        payloadBuffer.clear();
+        payloadBuffer.limit(length);
+        try {
+            return readCodec.decode(payloadBuffer);
+        } catch (IllegalArgumentException ex) {
+            throw new StreamCorruptedException(ex.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void write(Data data) throws IOException {
+        ByteBuffer frame;
+        try {
+            frame = writeCodec.encode(data);
+        } catch (IllegalArgumentException ex) {
+            throw new IOException(ex.getMessage(), ex);
+        }
+        output.write(frame.array(), frame.arrayOffset() + frame.position(),
+                frame.remaining());
+        output.flush();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * CacheEvent.java
+ */
+package jhelp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event which marks a lookup of {@link jhelp.ResultCache}
+ * by {@link jhelp.Server} object. The event is disabled by default.
+ *
+ * @see jhelp.RequestEvent
+ */
+@Name("jhelp.Cache")
+@Label("JHelp Cache Lookup")
+@Category("JHelp")
+@Description("Lookup of select result in the cache")
+@Enabled(false)
+@StackTrace(false)
+public class CacheEvent extends Event {
+
+    @Label("Operation")
+    int operation;
+
+    @Label("Term Length")
+    int termLength;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Hit")
+    boolean hit;
+
+    /**
+     * The method commits the event, if it's enabled.
+     *
+     * @param request request looked up in the cache.
+     * @param cached result found in the cache or <code>null</code>.
+     */
+    public static void lookup(Data request, Data cached) {
+        CacheEvent event = new CacheEvent();
+        if (event.shouldCommit()) {
+            event.operation = request.getOperation();
+            event.termLength = DbOperationEvent.termLength(request);
+            event.rows = cached == null ? 0 : DbOperationEvent.rows(cached);
+            event.hit = cached != null;
+            event.commit();
+        }
+    }
+}
@@ -1,306 +1,470 @@
-/*
- * Client.java
- *
- */
-package jhelp;
-
-import java.awt.BorderLayout;
-import java.awt.Dimension;
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.net.InetAddress;
-import java.net.Socket;
-import java.net.UnknownHostException;
-import java.util.Properties;
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
-import javax.swing.JPanel;
-import javax.swing.JTabbedPane;
-
-/**
- * Client class provides users's interface of the application.
- *
- * @author <strong >Y.D.Zakovryashin, 2009</strong>
- * @version 1.0
- */
-public class Client extends JFrame implements JHelp {
-
-    /**
-     * Static constant for serialization
-     */
-    public static final long serialVersionUID = 1234;
-    /**
-     * Client configuration file name
-     */
-
-    private static final int DEFAULT_HEIGHT = 25;
-
-    private ClientListener listener;
-    private InetAddress address;
-    private int port = JHelp.DEFAULT_SERVER_PORT;
-
-    private Socket socket = null;
-    /**
-     * Programm Configerties
-     */
-    private Properties commonConfig;
-    private Properties themeConfig;
-    private Properties langConfig;
-    public Properties userInterface;
-    private MainPane mainPane;
-
-    //-----------
-    private ObjectOutputStream output;
-    private ObjectInputStream input;
-    //-----------
-
-    /**
-     * Private Data object presents informational data.
-     */
-    private Data data;
-
-    {
-        commonConfig = initConfig(getFullPath("client.cfg"));
-        userInterface = initConfig(getFullPath("user_interface.cfg"));
-        String themeName = userInterface.getProperty("theme");
-        String langName = userInterface.getProperty("lang");
-        themeConfig = initConfig(getFullPath(themeName));
-        langConfig = initConfig(getFullPath(langName));
-        data = new Data();
-    }
-
-    public Client() {
-        listener = new ClientListener(this);
-    }
-
-    private Properties initConfig(String fileName) {
-        Properties commonConfig = null;
-        try {
-            commonConfig = new Configuration(fileName);
-        } catch (FileNotFoundException fe) {
-            showErrorMessage(this, "Configuration file " + fileName +
-                                   " doesn't exist\n" + fe.getMessage());
-            dispose();
-        } catch (IOException ie) {
-            showErrorMessage(this, ie.getMessage());
-            dispose();
-        }
-        return commonConfig;
-    }
-
-    /**
-     * Method for application start
-     *
-     * @param args agrgument of command string
-     */
-    static public void main(String[] args) {
-
-        Client client = new Client();
-        if (client.connect() == JHelp.OK) {
-            client.run();
-        }
-    }
-
-    /**
-     * Method define main job cycle
-     */
-    public void run() {
-        setTitle(langConfig.getProperty("jhelp"));
-        setBounds(50, 50, 720, 480);
-        setMinimumSize(new Dimension(400, 300));
-        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
-        addWindowListener(listener.closeAction());
-        setLayout(new BorderLayout());
-        JPanel content = new JPanel();
-        content.setLayout(new BorderLayout());
-        getContentPane().add(content);
-
-        JTabbedPane tabbet = new JTabbedPane();
-
-        JPanel aboutPane = new AboutPane(langConfig, themeConfig, listener);
-        JPanel SettingsPane = new SettingsPane(langConfig, themeConfig, listener);
-        mainPane = new MainPane(langConfig, themeConfig, listener);
-
-        tabbet.addTab(langConfig.getProperty("main"), mainPane);
-        tabbet.addTab(langConfig.getProperty("settings"), SettingsPane);
-        tabbet.addTab(langConfig.getProperty("about"), aboutPane);
-        content.add(tabbet);
-        setVisible(true);
-    }
-
-    /**
-     * Method set connection to default server with default parameters
-     *
-     * @return error code
-     * @throws java.net.UnknownHostException
-     */
-    @Override
-    public int connect() {
-        try {
-            address = InetAddress.getLocalHost();
-        } catch (UnknownHostException ex) {
-            showErrorMessage(this, "Get Local Host is fail " + ex.getMessage());
-            dispose();
-            return JHelp.ERROR;
-        }
-        return JHelp.OK;
-    }
-
-    /**
-     * Method set connection to server with parameters defines by argument
-     * <code>args</code>
-     *
-     * @return error code
-     */
-    @Override
-    public int connect(String[] args) {
-        String addressName = args[0];
-        port = Integer.valueOf(args[1]);
-        try {
-            address = InetAddress.getByName(addressName);
-        } catch (UnknownHostException ex) {
-            showErrorMessage(this, "Unknown Host " + ex.getMessage());
-            dispose();
-            return JHelp.ERROR;
-        }
-        System.out.println("Client: connect");
-        return JHelp.OK;
-    }
-
-    /**
-     * Method gets data from data source
-     *
-     * @param data initial object (template)
-     * @return new object
-     */
-    @Override
-    public Data getData(Data data) {
-        int operation = data.getOperation();
-        this.data.setOperation(operation);
-        String termin = getTermin().trim();
-        this.data.getKey().setItem(termin);
-
-        if (operation == JHelp.SELECT) {
-            this.data.getKey().setId(-1);
-            return this.data;
-        }
-        String dimention = getDimention().trim();
-        if (dimention != null) {
-            this.data.getValue(0).setItem(dimention);
-            this.data.getValue(0).setState(operation);
-        }
-        return this.data;
-    }
-
-    public void processQuery(Data data) {
-        int operation = data.getOperation();
-        if (isDisconnect(operation)) {
-            disconnect();
-            return;
-        }
-        try {
-            socket = new Socket(address, port);
-            output = new ObjectOutputStream(socket.getOutputStream());
-            output.flush();
-            output.writeObject(data);
-
-            input = new ObjectInputStream(socket.getInputStream());
-            Data response = (Data) input.readObject();
-            this.data = response;
-            int operationStatus = response.getOperation();
-            if (isFailRequest(operationStatus)) {
-                showErrorMessage(this, "Request faild");
-                return;
-            }
-            processResponse(operation);
-            mainPane.showDefinition(this.data.getValue(0).getItem());
-        } catch (IOException | ClassNotFoundException e) {
-            showErrorMessage(this, "Process query error: " + e.getMessage());
-        }
-    }
-
-    private boolean isDisconnect(int operation) {
-        return operation == JHelp.DISCONNECT;
-    }
-
-    private boolean isFailRequest(int operation) {
-        return operation != JHelp.ORIGIN;
-    }
-
-    private void processResponse(int originalOperation) {
-        switch (originalOperation) {
-            case JHelp.UPDATE:
-                showInfoMessage(this, "Record successfully updated");
-                break;
-            case JHelp.INSERT:
-                showInfoMessage(this, "Record successfully inserted");
-                break;
-            case JHelp.DELETE:
-                showInfoMessage(this, "Record successfully deleted");
-                this.data.getKey().setItem(null);
-                this.data.getKey().setId(-1);
-                this.data.getValue(0).setItem(null);
-                this.data.getValue(0).setId(-1);
-                mainPane.cleanFields();
-                break;
-        }
-    }
-
-    /**
-     * Method disconnects client and server
-     *
-     * @return error code
-     */
-    public int disconnect() {
-        System.out.println("Client: disconnect");
-        try {
-            if (socket != null && socket.isClosed() == false) {
-                socket.close();
-                socket = null;
-            }
-            if (output != null) {
-            output.close();
-            output = null;
-            }
-        } catch (IOException ex) {
-            showErrorMessage(this, "Disconnect error: " + ex.getMessage());
-        }
-        dispose();
-        return JHelp.OK;
-    }
-
-    public String getTermin() {
-        return mainPane.getTermin();
-    }
-
-    public String getDimention() {
-        return mainPane.getDimention();
-    }
-
-    public void showInfoMessage(JFrame mainWindow, String message) {
-        JOptionPane.showMessageDialog(mainWindow,
-                message,
-                "Success",
-                JOptionPane.INFORMATION_MESSAGE);
-    }
-
-    public void showWarningMessage(JFrame mainWindow, String message) {
-        JOptionPane.showMessageDialog(mainWindow,
-                message,
-                "Warning",
-                JOptionPane.WARNING_MESSAGE);
-    }
-
-    public void showErrorMessage(JFrame mainWindow, String message) {
-        JOptionPane.showMessageDialog(mainWindow,
-                message,
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-    }
-
-    public String getFullPath(String fileName) {
-        return CONFIG_PATH + fileName;
-    }
-}
+/*
+ * Client.java
+ *
+ */
+package jhelp;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.UnknownHostException;
+import java.util.Properties;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.JTabbedPane;
+
+/**
+ * Client class provides users's interface of the application.
+ *
+ * @author <strong >Y.D.Zakovryashin, 2009</strong>
+ * @version 1.0
+ */
+public class Client extends JFrame implements JHelp {
+
+    /**
+     * Static constant for serialization
+     */
+    public static final long serialVersionUID = 1234;
+    /**
+     * Client configuration file name
+     */
+
+    private static final int DEFAULT_HEIGHT = 25;
+
+    private ClientListener listener;
+    private InetAddress address;
+    private int port = JHelp.DEFAULT_SERVER_PORT;
+
+    private Socket socket = null;
+    /**
+     * Programm Configerties
+     */
+    private Properties commonConfig;
+    private Properties themeConfig;
+    private Properties langConfig;
+    public Properties userInterface;
+    private MainPane mainPane;
+
+    //-----------
+    private WireProtocol protocol;
+    //-----------
+
+    /**
+     * Private Data object presents informational data.
+     */
+    private Data data;
+    private int index;
+    private int requestCount;
+    private boolean written;
+    private long lastUsed;
+    private int sessionTimeout;
+
+    {
+        commonConfig = initConfig(getFullPath("client.cfg"));
+        userInterface = initConfig(getFullPath("user_interface.cfg"));
+        String themeName = userInterface.getProperty("theme");
+        String langName = userInterface.getProperty("lang");
+        themeConfig = initConfig(getFullPath(themeName));
+        langConfig = initConfig(getFullPath(langName));
+        data = new Data();
+    }
+
+    public Client() {
+        listener = new ClientListener(this);
+    }
+
+    private Properties initConfig(String fileName) {
+        Properties commonConfig = null;
+        try {
+            commonConfig = new Configuration(fileName);
+        } catch (FileNotFoundException fe) {
+            showErrorMessage(this, "Configuration file " + fileName +
+                                   " doesn't exist\n" + fe.getMessage());
+            dispose();
+        } catch (IOException ie) {
+            showErrorMessage(this, ie.getMessage());
+            dispose();
+        }
+        return commonConfig;
+    }
+
+    /**
+     * Method for application start
+     *
+     * @param args agrgument of command string
+     */
+    static public void main(String[] args) {
+
+        Client client = new Client();
+        if (client.connect() == JHelp.OK) {
+            client.run();
+        }
+    }
+
+    /**
+     * Method define main job cycle
+     */
+    public void run() {
+        setTitle(langConfig.getProperty("jhelp"));
+        setBounds(50, 50, 720, 480);
+        setMinimumSize(new Dimension(400, 300));
+        setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+        addWindowListener(listener.closeAction());
+        setLayout(new BorderLayout());
+        JPanel content = new JPanel();
+        content.setLayout(new BorderLayout());
+        getContentPane().add(content);
+
+        JTabbedPane tabbet = new JTabbedPane();
+
+        JPanel aboutPane = new AboutPane(langConfig, themeConfig, listener);
+        JPanel SettingsPane = new SettingsPane(langConfig, themeConfig, listener);
+        mainPane = new MainPane(langConfig, themeConfig, listener);
+
+        tabbet.addTab(langConfig.getProperty("main"), mainPane);
+        tabbet.addTab(langConfig.getProperty("settings"), SettingsPane);
+        tabbet.addTab(langConfig.getProperty("about"), aboutPane);
+        content.add(tabbet);
+        setVisible(true);
+    }
+
+    /**
+     * Method set connection to default server with default parameters
+     *
+     * @return error code
+     * @throws java.net.UnknownHostException
+     */
+    @Override
+    public int connect() {
+        try {
+            address = InetAddress.getLocalHost();
+        } catch (UnknownHostException ex) {
+            showErrorMessage(this, "Get Local Host is fail " + ex.getMessage());
+            dispose();
+            return JHelp.ERROR;
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * Method set connection to server with parameters defines by argument
+     * <code>args</code>
+     *
+     * @return error code
+     */
+    @Override
+    public int connect(String[] args) {
+        String addressName = args[0];
+        port = Integer.valueOf(args[1]);
+        try {
+            address = InetAddress.getByName(addressName);
+        } catch (UnknownHostException ex) {
+            showErrorMessage(this, "Unknown Host " + ex.getMessage());
+            dispose();
+            return JHelp.ERROR;
+        }
+        System.out.println("Client: connect");
+        return JHelp.OK;
+    }
+
+    /**
+     * Method gets data from data source
+     *
+     * @param data initial object (template)
+     * @return new object
+     */
+    @Override
+    public Data getData(Data data) {
+        int operation = data.getOperation();
+        this.data.setOperation(operation);
+        String termin = getTermin().trim();
+        this.data.getKey().setItem(termin);
+
+        if (operation == JHelp.SELECT) {
+            this.data.getKey().setId(-1);
+            this.data.setValues(null);
+            this.data.setCursor(0);
+            return this.data;
+        }
+        String dimention = getDimention().trim();
+        if (dimention != null) {
+            getCurrentItem().setItem(dimention);
+            getCurrentItem().setState(operation);
+        }
+        return this.data;
+    }
+
+    public void processQuery(Data data) {
+        int operation = data.getOperation();
+        if (isDisconnect(operation)) {
+            disconnect();
+            return;
+        }
+        try {
+            Data response = exchange(data);
+            int operationStatus = response.getOperation();
+            if (isFailRequest(operationStatus)) {
+                if (!isPaging(operation)) {
+                    String suggestions = suggestions(response);
+                    this.data = response;
+                    showErrorMessage(this, operationStatus == JHelp.ERROR
+                            ? "Server error, see server log" : "Request faild" + suggestions);
+                }
+                return;
+            }
+            this.data = response;
+            index = operation == JHelp.PREVIOUS ? response.getValues().length - 1 : 0;
+            processResponse(operation);
+            mainPane.showDefinition(getCurrentItem().getItem());
+        } catch (IOException e) {
+            showErrorMessage(this, "Process query error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The method shows the next definition of the term. If current definition
+     * is the last one of the page, the method requests the next page from the
+     * server.
+     */
+    public void next() {
+        Item[] values = data.getValues();
+        if (values != null && index + 1 < values.length) {
+            ++index;
+            mainPane.showDefinition(getCurrentItem().getItem());
+        } else if (data.getCursor() > 0) {
+            processQuery(pageRequest(JHelp.NEXT, data.getCursor()));
+        }
+    }
+
+    /**
+     * The method shows the previous definition of the term. If current
+     * definition is the first one of the page, the method requests the
+     * previous page from the server.
+     */
+    public void previous() {
+        Item[] values = data.getValues();
+        if (index > 0) {
+            --index;
+            mainPane.showDefinition(getCurrentItem().getItem());
+        } else if (values != null && values.length > 0 && values[0].getId() > 0) {
+            processQuery(pageRequest(JHelp.PREVIOUS, values[0].getId()));
+        }
+    }
+
+    private Data pageRequest(int operation, int cursor) {
+        Item key = data.getKey();
+        Data request = new Data(operation,
+                new Item(key.getId(), key.getItem(), JHelp.ORIGIN), null);
+        request.setCursor(cursor);
+        return request;
+    }
+
+    /**
+     * The method returns shown definition of current page. An empty
+     * definition is created if the page has no definitions.
+     */
+    private Item getCurrentItem() {
+        Item[] values = data.getValues();
+        if (values == null || values.length == 0) {
+            data.setValues(new Item[]{new Item()});
+            index = 0;
+        } else if (index >= values.length) {
+            index = values.length - 1;
+        }
+        return data.getValue(index);
+    }
+
+    /**
+     * The method sends request to the server and reads the response. The
+     * connection with the server is kept open between requests, a connection
+     * idle longer than <code>sessionTimeout</code> is replaced by a new one
+     * before the server closes it. If a kept connection turns out to be
+     * closed by the server, the method opens a new connection and repeats the
+     * request once. Changing requests are repeated only if they weren't sent,
+     * as the server may have applied them before the connection broke.
+     *
+     * @param data request to the server.
+     * @return response of the server.
+     */
+    private Data exchange(Data data) throws IOException {
+        if (socket != null && System.currentTimeMillis() - lastUsed > sessionTimeout) {
+            closeSession();
+        }
+        boolean reused = socket != null;
+        if (!reused) {
+            openSession();
+        }
+        try {
+            return send(data);
+        } catch (IOException ex) {
+            closeSession();
+            if (!reused || written && !isRepeatable(data.getOperation())) {
+                throw ex;
+            }
+            System.out.println("Client: reconnect " + ex.getMessage());
+            openSession();
+            return send(data);
+        }
+    }
+
+    private Data send(Data data) throws IOException {
+        int requestId = ++requestCount;
+        data.setRequestId(requestId);
+        written = false;
+        protocol.write(data);
+        written = true;
+        Data response = protocol.read();
+        while (response.getRequestId() != 0 && response.getRequestId() != requestId) {
+            System.out.println("Client: skip response " + response.getRequestId());
+            response = protocol.read();
+        }
+        lastUsed = System.currentTimeMillis();
+        return response;
+    }
+
+    private void openSession() throws IOException {
+        sessionTimeout = Integer.valueOf(commonConfig.getProperty("sessionTimeout", "30000"));
+        socket = new Socket(address, port);
+        protocol = Handshake.open(socket,
+                commonConfig.getProperty("protocol", BinaryProtocol.NAME));
+    }
+
+    private void closeSession() {
+        try {
+            if (socket != null && socket.isClosed() == false) {
+                socket.close();
+            }
+        } catch (IOException ex) {
+            System.out.println("Client: close session " + ex.getMessage());
+        }
+        socket = null;
+        protocol = null;
+    }
+
+    private boolean isDisconnect(int operation) {
+        return operation == JHelp.DISCONNECT;
+    }
+
+    /**
+     * The method shows whether the request doesn't change the dictionary, so
+     * it may be sent twice.
+     */
+    private boolean isRepeatable(int operation) {
+        switch (operation) {
+            case JHelp.SELECT:
+            case JHelp.NEXT:
+            case JHelp.PREVIOUS:
+            case JHelp.COMPLETE:
+            case JHelp.SEARCH:
+            case JHelp.FUZZY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private boolean isPaging(int operation) {
+        return operation == JHelp.NEXT || operation == JHelp.PREVIOUS;
+    }
+
+    private boolean isFailRequest(int operation) {
+        return operation != JHelp.ORIGIN;
+    }
+
+    /**
+     * The method takes terms suggested by the server for an empty result of
+     * {@link JHelp#SELECT} request out of the response.
+     *
+     * @param response response of the server.
+     * @return text of suggestions or an empty string if there are no
+     * suggestions.
+     */
+    private String suggestions(Data response) {
+        Item[] values = response.getValues();
+        if (values == null || values.length == 0 || values[0].getState() != JHelp.FUZZY) {
+            return "";
+        }
+        StringBuilder text = new StringBuilder(". Did you mean: ");
+        for (int i = 0; i < values.length; ++i) {
+            text.append(i == 0 ? "" : ", ").append(values[i].getItem());
+        }
+        response.setValues(new Item[0]);
+        return text.append('?').toString();
+    }
+
+    private void processResponse(int originalOperation) {
+        switch (originalOperation) {
+            case JHelp.UPDATE:
+                showInfoMessage(this, "Record successfully updated");
+                break;
+            case JHelp.INSERT:
+                showInfoMessage(this, "Record successfully inserted");
+                break;
+            case JHelp.DELETE:
+                showInfoMessage(this, "Record successfully deleted");
+                this.data.getKey().setItem(null);
+                this.data.getKey().setId(-1);
+                getCurrentItem().setItem(null);
+                getCurrentItem().setId(-1);
+                mainPane.cleanFields();
+                break;
+        }
+    }
+
+    /**
+     * Method disconnects client and server
+     *
+     * @return error code
+     */
+    public int disconnect() {
+        System.out.println("Client: disconnect");
+        try {
+            if (socket != null && socket.isClosed() == false) {
+                socket.close();
+                socket = null;
+            }
+            protocol = null;
+        } catch (IOException ex) {
+            showErrorMessage(this, "Disconnect error: " + ex.getMessage());
+        }
+        dispose();
+        return JHelp.OK;
+    }
+
+    public String getTermin() {
+        return mainPane.getTermin();
+    }
+
+    public String getDimention() {
+        return mainPane.getDimention();
+    }
+
+    public void showInfoMessage(JFrame mainWindow, String message) {
+        JOptionPane.showMessageDialog(mainWindow,
+                message,
+                "Success",
+                JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    public void showWarningMessage(JFrame mainWindow, String message) {
+        JOptionPane.showMessageDialog(mainWindow,
+                message,
+                "Warning",
+                JOptionPane.WARNING_MESSAGE);
+    }
+
+    public void showErrorMessage(JFrame mainWindow, String message) {
+        JOptionPane.showMessageDialog(mainWindow,
+                message,
+                "Error",
+                JOptionPane.ERROR_MESSAGE);
+    }
+
+    public String getFullPath(String fileName) {
+        return CONFIG_PATH + fileName;
+    }
+}
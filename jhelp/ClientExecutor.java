@@ -0,0 +1,270 @@
+/*
+ * ClientExecutor.java
+ */
+package jhelp;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class executes jobs of {@link jhelp.Server} object, for example
+ * {@link jhelp.ClientThread} objects. The executor works in one of three modes
+ * defined by configuration:
+ * <ul>
+ * <li>{@link #POOL} &ndash; bounded pool of platform threads with bounded
+ * queue and rejection policy {@link #ABORT}, {@link #CALLER_RUNS} or
+ * {@link #BLOCK};</li>
+ * <li>{@link #SESSION} &ndash; platform thread per job without queue, for
+ * long-lived jobs such as client connections. Idle threads are reused, at
+ * most <code>threads</code> jobs run at once and the next job is rejected
+ * at once whatever the rejection policy is;</li>
+ * <li>{@link #VIRTUAL} &ndash; new virtual thread for every job. The mode is
+ * available on JDK 21 and later, otherwise {@link #POOL} mode is used.</li>
+ * </ul>
+ * The executor counts queued, running and rejected jobs.
+ */
+public class ClientExecutor implements Executor {
+
+    private static final Log LOG = Log.getLog(ClientExecutor.class);
+
+    /**
+     * Mode of bounded pool of platform threads.
+     */
+    public static final String POOL = "pool";
+    /**
+     * Mode of platform thread per job without queue.
+     */
+    public static final String SESSION = "session";
+    /**
+     * Mode of virtual thread per job.
+     */
+    public static final String VIRTUAL = "virtual";
+    /**
+     * Policy throws {@link RejectedExecutionException} if the queue is full.
+     */
+    public static final String ABORT = "abort";
+    /**
+     * Policy runs a job in the calling thread if the queue is full.
+     */
+    public static final String CALLER_RUNS = "callerRuns";
+    /**
+     * Policy makes the calling thread wait for free place in the queue.
+     */
+    public static final String BLOCK = "block";
+
+    private String name;
+    private String mode;
+    private ExecutorService executor;
+    private ThreadPoolExecutor pool;
+    private AtomicInteger active = new AtomicInteger();
+    private AtomicLong rejected = new AtomicLong();
+
+    /**
+     * Creates a new instance of <code>ClientExecutor</code>. Parameters are
+     * read from configuration with keys <code>name + "Mode"</code>,
+     * <code>name + "Threads"</code>, <code>name + "Queue"</code> and
+     * <code>name + "RejectPolicy"</code>.
+     *
+     * @param name name of the executor, it's also prefix of configuration keys
+     * and thread names.
+     * @param config configuration properties.
+     */
+    public ClientExecutor(String name, Properties config) {
+        this(name, config, POOL, 32);
+    }
+
+    /**
+     * Creates a new instance of <code>ClientExecutor</code> with parameters
+     * read from configuration as {@link #ClientExecutor(String, Properties)}
+     * does.
+     *
+     * @param name name of the executor, it's also prefix of configuration keys
+     * and thread names.
+     * @param config configuration properties.
+     * @param mode mode used if the configuration doesn't define it.
+     * @param threads number of threads used if the configuration doesn't
+     * define it.
+     */
+    public ClientExecutor(String name, Properties config, String mode, int threads) {
+        this(name,
+                config.getProperty(name + "Mode", mode),
+                Integer.valueOf(config.getProperty(name + "Threads", String.valueOf(threads))),
+                Integer.valueOf(config.getProperty(name + "Queue", "128")),
+                config.getProperty(name + "RejectPolicy", ABORT));
+    }
+
+    /**
+     * Creates a new instance of <code>ClientExecutor</code>.
+     *
+     * @param name name of the executor used for thread names.
+     * @param mode {@link #POOL}, {@link #SESSION} or {@link #VIRTUAL}.
+     * @param threads number of threads in {@link #POOL} mode, maximum number
+     * of jobs in {@link #SESSION} mode.
+     * @param queue capacity of the queue in {@link #POOL} mode.
+     * @param policy rejection policy in {@link #POOL} mode.
+     */
+    public ClientExecutor(String name, String mode, int threads, int queue,
+            String policy) {
+        this.name = name;
+        if (VIRTUAL.equals(mode)) {
+            executor = newVirtualExecutor();
+        }
+        if (executor == null && SESSION.equals(mode)) {
+            this.mode = SESSION;
+            pool = new ThreadPoolExecutor(0, Math.max(1, threads), 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<Runnable>(), new NamedThreadFactory(),
+                    rejectionHandler(ABORT));
+            executor = pool;
+        } else if (executor == null) {
+            this.mode = POOL;
+            pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<Runnable>(Math.max(1, queue)),
+                    new NamedThreadFactory(), rejectionHandler(policy));
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        } else {
+            this.mode = VIRTUAL;
+        }
+    }
+
+    private ExecutorService newVirtualExecutor() {
+        try {
+            Method factory = java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            LOG.warn("virtual threads aren't supported, pool of platform threads is used");
+            return null;
+        }
+    }
+
+    private RejectedExecutionHandler rejectionHandler(String policy) {
+        if (CALLER_RUNS.equals(policy)) {
+            return new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable job, ThreadPoolExecutor e) {
+                    rejected.incrementAndGet();
+                    if (e.isShutdown()) {
+                        throw new RejectedExecutionException(name + " is shut down");
+                    }
+                    job.run();
+                }
+            };
+        }
+        if (BLOCK.equals(policy)) {
+            return new RejectedExecutionHandler() {
+                @Override
+                public void rejectedExecution(Runnable job, ThreadPoolExecutor e) {
+                    rejected.incrementAndGet();
+                    try {
+                        if (e.isShutdown()) {
+                            throw new RejectedExecutionException(name + " is shut down");
+                        }
+                        e.getQueue().put(job);
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException(ex);
+                    }
+                }
+            };
+        }
+        return new RejectedExecutionHandler() {
+            @Override
+            public void rejectedExecution(Runnable job, ThreadPoolExecutor e) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException(name + " queue is full");
+            }
+        };
+    }
+
+    /**
+     * The method executes the job in a thread of the executor.
+     *
+     * @param job job to execute.
+     * @throws RejectedExecutionException if the job is rejected.
+     */
+    @Override
+    public void execute(final Runnable job) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    active.incrementAndGet();
+                    try {
+                        job.run();
+                    } finally {
+                        active.decrementAndGet();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            if (pool == null) {
+                rejected.incrementAndGet();
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * The method stops accepting new jobs. Running jobs are not interrupted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * @return {@link #POOL}, {@link #SESSION} or {@link #VIRTUAL}.
+     */
+    public String getMode() {
+        return mode;
+    }
+
+    /**
+     * @return number of jobs waiting in the queue.
+     */
+    public int getQueueDepth() {
+        return pool == null ? 0 : pool.getQueue().size();
+    }
+
+    /**
+     * @return number of running jobs.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return number of jobs which didn't find free place in the queue or
+     * were rejected after shutdown. Such jobs are handled by rejection policy.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    @Override
+    public String toString() {
+        return name + ": mode=" + mode + ", active=" + getActiveCount()
+                + ", queue=" + getQueueDepth() + ", rejected=" + getRejectedCount();
+    }
+
+    private class NamedThreadFactory implements ThreadFactory {
+
+        private AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable job) {
+            return new Thread(job, name + "-" + count.incrementAndGet());
+        }
+    }
+}
@@ -73,10 +73,10 @@ public class ClientListener extends WindowAdapter
         int operation = Integer.valueOf(source.getName());
         switch (operation) {
             case Client.NEXT:
-                System.out.println("NEXT");
+                client.next();
                 break;
             case Client.PREVIOUS:
-                System.out.println("PREV");
+                client.previous();
                 break;
             case Client.DISCONNECT:
                 disconnect();
@@ -3,20 +3,24 @@
  */
 package jhelp;
 
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import static java.lang.System.err;
 import java.net.Socket;
-import java.util.logging.Level;
-import java.util.logging.Logger;
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides a network connection between end client of
  * {@link jhelp.Client} type and {@link jhelp.Server} object. Every object of
- * this class may work in separate thread.
+ * this class may work in separate thread. The connection serves requests of
+ * the client until the client closes it or the connection is idle longer than
+ * {@link jhelp.Server#getIdleTimeout()}. Requests with identificator
+ * ({@link jhelp.Data#getRequestId()}) are executed concurrently by executor of
+ * requests and answered as they complete, other requests are answered in
+ * order.
  *
  * @author <strong >Y.D.Zakovryashin, 2009</strong>
  * @version 1.0
@@ -25,11 +29,13 @@ import javax.swing.JOptionPane;
  */
 public class ClientThread implements JHelp, Runnable {
 
+    private static final Log LOG = Log.getLog(ClientThread.class);
+
     private Server server;
     private Socket clientSocket;
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
+    private WireProtocol protocol;
     private Data data;
+    private Semaphore inFlight;
 
     /**
      * Creates a new instance of Client
@@ -39,41 +45,121 @@ public class ClientThread implements JHelp, Runnable {
      * with client application.
      */
     public ClientThread(Server server, Socket socket) {
-        System.out.println("MClient: constructor");
+        LOG.debug("constructor");
         this.server = server;
         this.clientSocket = socket;
     }
 
     /**
-     * The method defines main job cycle for the object.
+     * The method defines main job cycle for the object. The method opens
+     * streams and reads requests one by one until the client disconnects.
      */
     @Override
     public void run() {
+        if (connect() != JHelp.OK) {
+            disconnect();
+            return;
+        }
+        inFlight = new Semaphore(server.getMaxInFlight());
+        try {
+            while (!clientSocket.isClosed()) {
+                data = protocol.read();
+                if (data.getOperation() == JHelp.DISCONNECT) {
+                    awaitResponses();
+                    break;
+                }
+                if (data.getRequestId() == 0 || server.getRequests() == null) {
+                    int operation = data.getOperation();
+                    RequestEvent event = new RequestEvent();
+                    event.begin();
+                    Data response = server.getData(data);
+                    long start = System.nanoTime();
+                    protocol.write(response);
+                    server.getMetrics().record(operation, Metrics.Stage.ENCODE, start);
+                    event.commit(operation, response);
+                } else {
+                    dispatch(data);
+                }
+            }
+        } catch (EOFException | SocketException ex) {
+            LOG.debug("connection closed by client");
+        } catch (SocketTimeoutException ex) {
+            LOG.debug("idle connection closed");
+        } catch (IOException ex) {
+            ErrorReporter.getInstance().report("Thread run error", ex);
+        } finally {
+            disconnect();
+        }
+    }
+
+    /**
+     * The method passes identified request to executor of requests. Number of
+     * requests executed at once for the connection is limited by
+     * {@link Server#getMaxInFlight()}, so a client which doesn't read
+     * responses can't hold all threads of the executor.
+     */
+    private void dispatch(final Data request) throws IOException {
+        inFlight.acquireUninterruptibly();
+        final int operation = request.getOperation();
+        final long queued = System.nanoTime();
+        final RequestEvent event = new RequestEvent();
+        event.begin();
+        try {
+            server.getRequests().execute(new Runnable() {
+                @Override
+                public void run() {
+                    server.getMetrics().record(operation, Metrics.Stage.QUEUE, queued);
+                    try {
+                        Data response = server.getData(request);
+                        long start = System.nanoTime();
+                        reply(response, request.getRequestId());
+                        server.getMetrics().record(operation, Metrics.Stage.ENCODE, start);
+                        event.commit(operation, response);
+                    } finally {
+                        inFlight.release();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            inFlight.release();
+            request.setOperation(JHelp.ERROR);
+            protocol.write(request);
+        }
+    }
+
+    private void reply(Data response, int requestId) {
+        response.setRequestId(requestId);
         try {
-            data = (Data) input.readObject();
-            output.writeObject(server.getData(data));
-            output.flush();
+            protocol.write(response);
         } catch (IOException ex) {
-            ex.printStackTrace(err);
-            showErrorMessage("Thread run: " + ex.getStackTrace()[0]);
-        } catch (ClassNotFoundException ex) {
-            Logger.getLogger(ClientThread.class.getName()).log(Level.SEVERE, null, ex);
+            LOG.warn(() -> "response " + requestId + " is lost: " + ex.getMessage());
+        }
+    }
+
+    private void awaitResponses() {
+        try {
+            inFlight.tryAcquire(server.getMaxInFlight(), server.getIdleTimeout(),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         }
     }
 
     /**
      * Opens input and output streams for data interchanging with client
-     * application.
+     * application. Protocol of the streams is negotiated with the client by
+     * {@link Handshake}.
      *
      * @return error code. The method returns {@link JHelp#OK} if streams are
      * successfully opened, otherwise the method returns {@link JHelp#ERROR}.
      */
     @Override
     public int connect() {
-        System.out.println("MClient: connect");
+        LOG.debug("connect");
         try {
-            input = new ObjectInputStream(clientSocket.getInputStream());
-            output = new ObjectOutputStream(clientSocket.getOutputStream());
+            clientSocket.setSoTimeout(server.getIdleTimeout());
+            protocol = Handshake.accept(clientSocket, server.isLegacyProtocol());
+            LOG.debug(() -> "protocol " + protocol.getName());
         } catch (IOException ex) {
             return JHelp.ERROR;
         }
@@ -91,7 +177,7 @@ public class ClientThread implements JHelp, Runnable {
      */
     @Override
     public int connect(String[] args) {
-        System.out.println("MClient: connect");
+        LOG.debug("connect");
         return JHelp.OK;
     }
 
@@ -105,7 +191,7 @@ public class ClientThread implements JHelp, Runnable {
      */
     @Override
     public Data getData(Data data) {
-        System.out.println("MClient: getData");
+        LOG.debug("getData");
         return null;
     }
 
@@ -118,16 +204,15 @@ public class ClientThread implements JHelp, Runnable {
      */
     @Override
     public int disconnect() {
-        System.out.println("MClient: disconnect");
+        LOG.debug("disconnect");
+        try {
+            if (clientSocket.isClosed() == false) {
+                clientSocket.close();
+            }
+        } catch (IOException ex) {
+            LOG.error("close connection error", ex);
+            return JHelp.ERROR;
+        }
         return JHelp.DISCONNECT;
     }
-
-    private void showErrorMessage(String message) {
-        JFrame errorWindow = new JFrame();
-        errorWindow.setAlwaysOnTop(true);
-        JOptionPane.showMessageDialog(errorWindow,
-                message,
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-    }
 }
@@ -0,0 +1,232 @@
+/*
+ * ConnectionPool.java
+ */
+package jhelp;
+
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class presents bounded pool of database connections used by
+ * {@link jhelp.ServerDb} object. Every connection of the pool is wrapped into
+ * {@link jhelp.PooledConnection} object which keeps its own cache of prepared
+ * statements. A connection is taken from the pool by {@link #acquire()} method
+ * and returned back by {@link jhelp.PooledConnection#close()} method, so it may
+ * be used in <code>try</code>-with-resources statement.
+ *
+ * @see jhelp.PooledConnection
+ * @see jhelp.ServerDb
+ */
+public class ConnectionPool {
+
+    private String url;
+    private String user;
+    private String password;
+    private int size;
+    private long timeout;
+    private String[] scripts = {};
+    private String[] keyScripts = {};
+    private BlockingQueue<PooledConnection> idle;
+    private Semaphore permits;
+    private volatile boolean closed;
+    private AtomicInteger active = new AtomicInteger();
+    private AtomicLong checkouts = new AtomicLong();
+    private AtomicLong checkoutFailures = new AtomicLong();
+    private AtomicLong waitTime = new AtomicLong();
+
+    /**
+     * Creates a new instance of <code>ConnectionPool</code>.
+     *
+     * @param url database connection string.
+     * @param user database user name.
+     * @param password database user password.
+     * @param size maximum number of connections in the pool.
+     * @param timeout maximum time in milliseconds to wait for free connection.
+     */
+    public ConnectionPool(String url, String user, String password,
+            int size, long timeout) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.size = size;
+        this.timeout = timeout;
+        idle = new ArrayBlockingQueue<>(size);
+        permits = new Semaphore(size, true);
+    }
+
+    /**
+     * The method defines SQL scripts which are prepared on every new
+     * connection.
+     *
+     * @param scripts scripts prepared by {@link PooledConnection#prepare}.
+     * @param keyScripts scripts prepared by
+     * {@link PooledConnection#prepareWithKeys}.
+     */
+    public void setScripts(String[] scripts, String[] keyScripts) {
+        this.scripts = scripts;
+        this.keyScripts = keyScripts;
+    }
+
+    /**
+     * The method opens <code>count</code> connections and prepares all scripts
+     * on them, so first requests don't pay for connection setup.
+     *
+     * @param count number of connections to open. The value is limited by the
+     * pool size.
+     * @throws SQLException if a connection can't be opened.
+     */
+    public void prewarm(int count) throws SQLException {
+        int n = Math.min(count, size) - idle.size();
+        for (int i = 0; i < n; ++i) {
+            PooledConnection con = open();
+            if (!idle.offer(con)) {
+                con.destroy();
+                break;
+            }
+        }
+    }
+
+    /**
+     * The method takes a free connection from the pool. If all connections
+     * are busy the method waits for a free connection no longer than pool
+     * timeout.
+     *
+     * @return connection object. The caller must close it to return the
+     * connection back to the pool.
+     * @throws SQLException if the pool is closed, the timeout is elapsed or a
+     * new connection can't be opened.
+     */
+    public PooledConnection acquire() throws SQLException {
+        long start = System.nanoTime();
+        boolean permitted;
+        try {
+            permitted = !closed && permits.tryAcquire(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            permitted = false;
+        }
+        waitTime.addAndGet(System.nanoTime() - start);
+        if (!permitted) {
+            checkoutFailures.incrementAndGet();
+            throw new SQLException("No free database connection in " + timeout + " ms");
+        }
+        try {
+            PooledConnection con = idle.poll();
+            if (con == null || !con.isValid()) {
+                if (con != null) {
+                    con.destroy();
+                }
+                con = open();
+            }
+            active.incrementAndGet();
+            checkouts.incrementAndGet();
+            return con;
+        } catch (SQLException ex) {
+            permits.release();
+            checkoutFailures.incrementAndGet();
+            throw ex;
+        }
+    }
+
+    /**
+     * The method returns connection back to the pool. Uncommitted work of the
+     * connection is rolled back. Broken connections are closed.
+     *
+     * @param con connection taken by {@link #acquire()} method.
+     */
+    void release(PooledConnection con) {
+        active.decrementAndGet();
+        try {
+            if (closed || !con.reset() || !idle.offer(con)) {
+                con.destroy();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * The method closes all idle connections and rejects new requests.
+     * Connections which are in use now are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        PooledConnection con;
+        while ((con = idle.poll()) != null) {
+            con.destroy();
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        PooledConnection con = new PooledConnection(this,
+                DriverManager.getConnection(url, user, password));
+        for (String script : scripts) {
+            if (script != null) {
+                con.prepare(script);
+            }
+        }
+        for (String script : keyScripts) {
+            if (script != null) {
+                con.prepareWithKeys(script);
+            }
+        }
+        return con;
+    }
+
+    /**
+     * @return maximum number of connections in the pool.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return number of connections which are in use now.
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return number of opened connections waiting for requests.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return total number of successful checkouts.
+     */
+    public long getCheckouts() {
+        return checkouts.get();
+    }
+
+    /**
+     * @return number of checkouts failed by timeout or connection error.
+     */
+    public long getCheckoutFailures() {
+        return checkoutFailures.get();
+    }
+
+    /**
+     * @return total time in milliseconds spent by requests waiting for a free
+     * connection.
+     */
+    public long getWaitTime() {
+        return TimeUnit.NANOSECONDS.toMillis(waitTime.get());
+    }
+
+    @Override
+    public String toString() {
+        return "active=" + getActiveCount() + ", idle=" + getIdleCount()
+                + ", checkouts=" + getCheckouts()
+                + ", failures=" + getCheckoutFailures()
+                + ", waitTime=" + getWaitTime() + "ms";
+    }
+}
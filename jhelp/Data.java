@@ -1,152 +1,226 @@
-/*
- * Data.java
- */
-package jhelp;
-
-import java.io.Serializable;
-
-/**
- * This class presents data for client form: term and it's definitions. Class
- * has three private attributes. Attribute <code>operation</code> defines action
- * execute with the data in database. Attribute <code>key</code> presents a term
- * or key value as a {@link jhelp.Item} object. Attribute <code>values</code> is
- * array of {@link jhelp.Item} objects. The attribute presents a set of
- * definitions for the <code>key</code>.
- *
- * @author <strong >Y.D.Zakovryashin</strong>, 2009
- */
-public class Data implements Serializable {
-
-    /**
-     * Static constant for serialization
-     */
-    public static final long serialVersionUID = 234;
-    private int operation;
-    private Item key;
-    private Item[] values;
-
-    /**
-     * Default constructor defines all class attributes with default values.
-     * Defualt value for <code>operation</code> is {@link jhelp.JHelp#SELECT}.
-     * Default value for <code>key</code> is default {@link jhelp.Item} object.
-     * Default value for <code>values</code> is <code>null</code>.
-     */
-    public Data() {
-        this(JHelp.SELECT, new Item(), JHelp.DEFAULT_VALUES);
-    }
-
-    /**
-     * This constructor defines key value for <code>Data</code> object.
-     *
-     * @param key {@link jhelp.Item} object presents key value.
-     */
-    public Data(Item key) {
-        this(JHelp.SELECT, key, null);
-    }
-
-    /**
-     * Creates a new instance of <code>Data</code>
-     *
-     * @param operation defines value for attribute <code>operation</code>.
-     * Legal values for this attribute are {@link jhelp.JHelp#SELECT},
-     * {@link jhelp.JHelp#INSERT}, {@link jhelp.JHelp#UPDATE} and
-     * {@link jhelp.JHelp#DELETE}.
-     * @param key defines initial value for <code>key</code> object.
-     * @param values defines initial value for <code>values</code>.
-     */
-    public Data(int operation, Item key, Item[] values) {
-        this.operation = operation;
-        this.key = key;
-        this.values = values;
-    }
-
-    /**
-     * Method returns current value of <code>operation</code> attribute.
-     *
-     * @return current value of <code>operation</code> attribute.
-     */
-    public int getOperation() {
-        return operation;
-    }
-
-    /**
-     * Method sets current value of <code>operation</code> attribute.
-     *
-     * @param operation new value of <code>operation</code> attribute.
-     */
-    public void setOperation(int operation) {
-        this.operation = operation;
-    }
-
-    /**
-     * Method returns current value of <code>key</code> attribute.
-     *
-     * @return current value of <code>key</code> attribute.
-     */
-    public Item getKey() {
-        return key;
-    }
-
-    /**
-     * Method sets current value of <code>key</code> attribute.
-     *
-     * @param key new value of <code>key</code> attribute.
-     */
-    public void setKey(Item key) {
-        this.key = key;
-    }
-
-    /**
-     * Method returns current value of item in <code>values</code> array with
-     * <code>index</code> index.
-     *
-     * @param index index in <code>values</code> array.
-     * @return current value of item in <code>values</code> array.
-     */
-    public Item getValue(int index) {
-        return values[index];
-    }
-
-    /**
-     * Method sets current value of item in <code>values</code> array with
-     * <code>index</code> index as <code>value</code>.
-     *
-     * @param index index index in <code>values</code> array.
-     * @param value new value for {@link jhelp.Item} object in
-     * <code>values</code> array.
-     */
-    public void setValue(int index, Item value) {
-        if (index > -1) {
-            if (values == null) {
-                values = new Item[1];
-            }
-            if (index >= values.length) {
-                Item[] newItems = new Item[index + 1];
-                for (int i = 0; i < values.length; ++i) {
-                    newItems[i] = values[i];
-                }
-                values = newItems;
-            }
-            values[index] = value;
-        }
-    }
-
-    /**
-     * Method returns all values of <code>values</code> attribute as array.
-     *
-     * @return array of {@link jhelp.Item} type.
-     */
-    public Item[] getValues() {
-        return values;
-    }
-
-    /**
-     * Method sets array <code>values</code> as class attribute
-     * <code>values</code>.
-     *
-     * @param values array of {@link jhelp.Item} type.
-     */
-    public void setValues(Item[] values) {
-        this.values = values;
-    }
-}
+/*
+ * Data.java
+ */
+package jhelp;
+
+import java.io.Serializable;
+
+/**
+ * This class presents data for client form: term and it's definitions. Class
+ * has three private attributes. Attribute <code>operation</code> defines action
+ * execute with the data in database. Attribute <code>key</code> presents a term
+ * or key value as a {@link jhelp.Item} object. Attribute <code>values</code> is
+ * array of {@link jhelp.Item} objects. The attribute presents a set of
+ * definitions for the <code>key</code>.
+ *
+ * @author <strong >Y.D.Zakovryashin</strong>, 2009
+ */
+public class Data implements Serializable {
+
+    /**
+     * Static constant for serialization
+     */
+    public static final long serialVersionUID = 234;
+    private int operation;
+    private Item key;
+    private Item[] values;
+    private int requestId;
+    private int cursor;
+
+    /**
+     * Default constructor defines all class attributes with default values.
+     * Defualt value for <code>operation</code> is {@link jhelp.JHelp#SELECT}.
+     * Default value for <code>key</code> is default {@link jhelp.Item} object.
+     * Default value for <code>values</code> is <code>null</code>.
+     */
+    public Data() {
+        this(JHelp.SELECT, new Item(), JHelp.DEFAULT_VALUES);
+    }
+
+    /**
+     * This constructor defines key value for <code>Data</code> object.
+     *
+     * @param key {@link jhelp.Item} object presents key value.
+     */
+    public Data(Item key) {
+        this(JHelp.SELECT, key, null);
+    }
+
+    /**
+     * Creates a new instance of <code>Data</code>
+     *
+     * @param operation defines value for attribute <code>operation</code>.
+     * Legal values for this attribute are {@link jhelp.JHelp#SELECT},
+     * {@link jhelp.JHelp#INSERT}, {@link jhelp.JHelp#UPDATE} and
+     * {@link jhelp.JHelp#DELETE}.
+     * @param key defines initial value for <code>key</code> object.
+     * @param values defines initial value for <code>values</code>.
+     */
+    public Data(int operation, Item key, Item[] values) {
+        this.operation = operation;
+        this.key = key;
+        this.values = values;
+    }
+
+    /**
+     * Method returns current value of <code>operation</code> attribute.
+     *
+     * @return current value of <code>operation</code> attribute.
+     */
+    public int getOperation() {
+        return operation;
+    }
+
+    /**
+     * Method sets current value of <code>operation</code> attribute.
+     *
+     * @param operation new value of <code>operation</code> attribute.
+     */
+    public void setOperation(int operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Method returns identificator of the request. A client sets different
+     * identificators for requests sent through one connection, and the server
+     * returns the identificator with the response, so responses may be
+     * returned in any order. Value 0 means the request isn't identified and
+     * must be answered in order.
+     *
+     * @return identificator of the request.
+     */
+    public int getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Method sets identificator of the request.
+     *
+     * @param requestId new identificator of the request.
+     */
+    public void setRequestId(int requestId) {
+        this.requestId = requestId;
+    }
+
+    /**
+     * Method returns continuation token of paged result. In a response to
+     * {@link JHelp#SELECT}, {@link JHelp#NEXT} or {@link JHelp#PREVIOUS}
+     * request the token is identificator of the last definition of the page,
+     * if there are definitions after it, otherwise the token is 0. In a
+     * {@link JHelp#NEXT} request the token is identificator of the last
+     * definition of current page, in a {@link JHelp#PREVIOUS} request it's
+     * identificator of the first definition of current page.
+     *
+     * @return continuation token.
+     */
+    public int getCursor() {
+        return cursor;
+    }
+
+    /**
+     * Method sets continuation token of paged result.
+     *
+     * @param cursor new continuation token.
+     */
+    public void setCursor(int cursor) {
+        this.cursor = cursor;
+    }
+
+    /**
+     * Method returns current value of <code>key</code> attribute.
+     *
+     * @return current value of <code>key</code> attribute.
+     */
+    public Item getKey() {
+        return key;
+    }
+
+    /**
+     * Method sets current value of <code>key</code> attribute.
+     *
+     * @param key new value of <code>key</code> attribute.
+     */
+    public void setKey(Item key) {
+        this.key = key;
+    }
+
+    /**
+     * Method returns current value of item in <code>values</code> array with
+     * <code>index</code> index.
+     *
+     * @param index index in <code>values</code> array.
+     * @return current value of item in <code>values</code> array.
+     */
+    public Item getValue(int index) {
+        return values[index];
+    }
+
+    /**
+     * Method sets current value of item in <code>values</code> array with
+     * <code>index</code> index as <code>value</code>.
+     *
+     * @param index index index in <code>values</code> array.
+     * @param value new value for {@link jhelp.Item} object in
+     * <code>values</code> array.
+     */
+    public void setValue(int index, Item value) {
+        if (index > -1) {
+            if (values == null) {
+                values = new Item[1];
+            }
+            if (index >= values.length) {
+                Item[] newItems = new Item[index + 1];
+                for (int i = 0; i < values.length; ++i) {
+                    newItems[i] = values[i];
+                }
+                values = newItems;
+            }
+            values[index] = value;
+        }
+    }
+
+    /**
+     * Method returns all values of <code>values</code> attribute as array.
+     *
+     * @return array of {@link jhelp.Item} type.
+     */
+    public Item[] getValues() {
+        return values;
+    }
+
+    /**
+     * Method sets array <code>values</code> as class attribute
+     * <code>values</code>.
+     *
+     * @param values array of {@link jhelp.Item} type.
+     */
+    public void setValues(Item[] values) {
+        this.values = values;
+    }
+
+    /**
+     * Method creates deep copy of the object. The copy has its own
+     * <code>key</code> and <code>values</code> objects, so it may be changed
+     * independently of the original.
+     *
+     * @return copy of the object.
+     */
+    public Data copy() {
+        Item[] items = null;
+        if (values != null) {
+            items = new Item[values.length];
+            for (int i = 0; i < values.length; ++i) {
+                items[i] = copy(values[i]);
+            }
+        }
+        Data data = new Data(operation, copy(key), items);
+        data.setRequestId(requestId);
+        data.setCursor(cursor);
+        return data;
+    }
+
+    private static Item copy(Item item) {
+        return item == null ? null
+                : new Item(item.getId(), item.getItem(), item.getState());
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * DataCodec.java
+ */
+package jhelp;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class converts {@link jhelp.Data} objects to compact binary frames and
+ * back. A frame is a 4-byte length followed by a payload:
+ * <pre>
+ *   payload = version:byte [requestId:varint] [cursor:varint]
+ *             operation:byte key:item count:varint item*
+ *   item    = present:byte [id:zigzag-varint state:byte item:string]
+ *   string  = length+1:varint utf-8-bytes    (length 0 means null)
+ *   count   = values length + 1              (0 means null array)
+ * </pre>
+ * Field <code>requestId</code> is present since version 2, field
+ * <code>cursor</code> is present since version 3. The codec reuses its
+ * buffers, so encoding and decoding allocate only
+ * resulting objects. An object of this class must be used by one thread at a
+ * time.
+ *
+ * @see jhelp.BinaryProtocol
+ */
+public class DataCodec {
+
+    /**
+     * Current version of the payload format.
+     */
+    public static final byte VERSION = 3;
+    /**
+     * Maximum size of a frame payload in bytes.
+     */
+    public static final int MAX_FRAME = 16 * 1024 * 1024;
+    private static final int INITIAL_SIZE = 512;
+
+    private byte version;
+    private ByteBuffer frame = ByteBuffer.allocate(INITIAL_SIZE);
+    private byte[] scratch = new byte[INITIAL_SIZE];
+
+    /**
+     * Creates a new instance of <code>DataCodec</code> which encodes frames
+     * of {@link #VERSION} version.
+     */
+    public DataCodec() {
+        this(VERSION);
+    }
+
+    /**
+     * Creates a new instance of <code>DataCodec</code>.
+     *
+     * @param version version of encoded frames. Frames of all supported
+     * versions are decoded.
+     */
+    public DataCodec(byte version) {
+        if (version < 1 || version > VERSION) {
+            throw new IllegalArgumentException("Unsupported version " + version);
+        }
+        this.version = version;
+    }
+
+    /**
+     * The method encodes the object as a frame.
+     *
+     * @param data object to encode.
+     * @return internal buffer of the codec with the frame between position and
+     * limit. The buffer is valid until next call of the method.
+     * @throws IllegalArgumentException if operation or state of the object
+     * doesn't fit into a byte or the frame is too long.
+     */
+    public ByteBuffer encode(Data data) {
+        int size = payloadLength(data);
+        if (size > MAX_FRAME) {
+            throw new IllegalArgumentException("Frame is too long: " + size);
+        }
+        if (frame.capacity() < size + 4) {
+            frame = ByteBuffer.allocate(Math.max(size + 4, frame.capacity() * 2));
+        }
+        frame.clear();
+        frame.putInt(size);
+        encode(data, frame);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * The method writes payload of the object into the buffer.
+     *
+     * @param data object to encode.
+     * @param buffer target buffer with at least {@link #payloadLength(Data)}
+     * free bytes.
+     */
+    public void encode(Data data, ByteBuffer buffer) {
+        buffer.put(version);
+        if (version >= 2) {
+            putVarint(buffer, data.getRequestId());
+        }
+        if (version >= 3) {
+            putVarint(buffer, data.getCursor());
+        }
+        buffer.put(toByte(data.getOperation()));
+        putItem(buffer, data.getKey());
+        Item[] values = data.getValues();
+        if (values == null) {
+            putVarint(buffer, 0);
+        } else {
+            putVarint(buffer, values.length + 1);
+            for (Item value : values) {
+                putItem(buffer, value);
+            }
+        }
+    }
+
+    /**
+     * The method decodes a payload of a frame.
+     *
+     * @param buffer buffer with the payload between position and limit.
+     * @return decoded object.
+     * @throws IllegalArgumentException if the payload is malformed or has
+     * unsupported version.
+     */
+    public Data decode(ByteBuffer buffer) {
+        try {
+            byte version = buffer.get();
+            if (version < 1 || version > VERSION) {
+                throw new IllegalArgumentException("Unsupported version " + version);
+            }
+            int requestId = version >= 2 ? getVarint(buffer) : 0;
+            int cursor = version >= 3 ? getVarint(buffer) : 0;
+            int operation = buffer.get();
+            Item key = getItem(buffer);
+            int count = getVarint(buffer);
+            Item[] values = null;
+            if (count > 0) {
+                if (count - 1 > buffer.remaining()) {
+                    throw new IllegalArgumentException("Wrong number of values " + count);
+                }
+                values = new Item[count - 1];
+                for (int i = 0; i < values.length; ++i) {
+                    values[i] = getItem(buffer);
+                }
+            }
+            Data data = new Data(operation, key, values);
+            data.setRequestId(requestId);
+            data.setCursor(cursor);
+            return data;
+        } catch (BufferUnderflowException ex) {
+            throw new IllegalArgumentException("Truncated frame", ex);
+        }
+    }
+
+    /**
+     * The method calculates length of the payload for the object.
+     *
+     * @param data object to encode.
+     * @return length of the payload in bytes.
+     */
+    public int payloadLength(Data data) {
+        int size = 2 + itemLength(data.getKey());
+        if (version >= 2) {
+            size += varintLength(data.getRequestId());
+        }
+        if (version >= 3) {
+            size += varintLength(data.getCursor());
+        }
+        Item[] values = data.getValues();
+        if (values == null) {
+            return size + 1;
+        }
+        size += varintLength(values.length + 1);
+        for (Item value : values) {
+            size += itemLength(value);
+        }
+        return size;
+    }
+
+    private int itemLength(Item item) {
+        if (item == null) {
+            return 1;
+        }
+        String text = item.getItem();
+        int length = 2 + varintLength(zigzag(item.getId()));
+        if (text == null) {
+            return length + 1;
+        }
+        int bytes = utf8Length(text);
+        return length + varintLength(bytes + 1) + bytes;
+    }
+
+    private void putItem(ByteBuffer buffer, Item item) {
+        if (item == null) {
+            buffer.put((byte) 0);
+            return;
+        }
+        buffer.put((byte) 1);
+        putVarint(buffer, zigzag(item.getId()));
+        buffer.put(toByte(item.getState()));
+        putString(buffer, item.getItem());
+    }
+
+    private Item getItem(ByteBuffer buffer) {
+        if (buffer.get() == 0) {
+            return null;
+        }
+        int id = unzigzag(getVarint(buffer));
+        int state = buffer.get();
+        return new Item(id, getString(buffer), state);
+    }
+
+    private void putString(ByteBuffer buffer, String text) {
+        if (text == null) {
+            putVarint(buffer, 0);
+            return;
+        }
+        putVarint(buffer, utf8Length(text) + 1);
+        int length = text.length();
+        for (int i = 0; i < length; ++i) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                buffer.put((byte) (0xF0 | (cp >> 18)));
+                buffer.put((byte) (0x80 | ((cp >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((cp >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (cp & 0x3F)));
+            } else {
+                if (Character.isSurrogate(c)) {
+                    c = '\uFFFD';
+                }
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private String getString(ByteBuffer buffer) {
+        int length = getVarint(buffer) - 1;
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("Wrong string length " + length);
+        }
+        String text;
+        if (buffer.hasArray()) {
+            text = new String(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+        } else {
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            buffer.get(scratch, 0, length);
+            text = new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+        return text;
+    }
+
+    private static int utf8Length(String text) {
+        int bytes = 0;
+        int length = text.length();
+        for (int i = 0; i < length; ++i) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                bytes += 1;
+            } else if (c < 0x800) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                bytes += 4;
+                ++i;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    static void putVarint(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    static int getVarint(ByteBuffer buffer) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            ++length;
+        }
+        return length;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static byte toByte(int value) {
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("Value doesn't fit into byte: " + value);
+        }
+        return (byte) value;
+    }
+}
@@ -0,0 +1,65 @@
+/*
+ * DbOperationEvent.java
+ */
+package jhelp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event which covers an operation of {@link jhelp.ServerDb}
+ * object from its start to its finish. The event is disabled by default.
+ *
+ * @see jhelp.RequestEvent
+ */
+@Name("jhelp.DbOperation")
+@Label("JHelp Database Operation")
+@Category("JHelp")
+@Description("Operation of ServerDb with the database")
+@Enabled(false)
+@StackTrace(false)
+public class DbOperationEvent extends Event {
+
+    @Label("Operation")
+    int operation;
+
+    @Label("Term Length")
+    int termLength;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Status")
+    int status;
+
+    /**
+     * The method commits the event with attributes of the finished
+     * operation, if the event is enabled and passes the threshold.
+     *
+     * @param operation code of the operation.
+     * @param result result of the operation.
+     */
+    public void commit(int operation, Data result) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            termLength = termLength(result);
+            rows = rows(result);
+            status = result.getOperation();
+            commit();
+        }
+    }
+
+    static int termLength(Data data) {
+        Item key = data.getKey();
+        return key == null || key.getItem() == null ? 0 : key.getItem().length();
+    }
+
+    static int rows(Data data) {
+        return data.getValues() == null ? 0 : data.getValues().length;
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * ErrorReporter.java
+ */
+package jhelp;
+
+import java.awt.GraphicsEnvironment;
+import java.io.PrintStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.swing.JFrame;
+import javax.swing.JOptionPane;
+
+/**
+ * This class delivers error messages of the server to a sink without
+ * blocking the reporting thread. Messages are put into a bounded ring buffer
+ * and written by one background thread, so a request thread never waits for
+ * console, file or dialog. If the buffer is full the message is dropped and
+ * counted. Server classes share one object returned by
+ * {@link #getInstance()}.
+ *
+ * @see jhelp.Server
+ * @see jhelp.ServerDb
+ */
+public class ErrorReporter implements Runnable {
+
+    /**
+     * Destination of reported messages. A sink is called only by the
+     * background thread of the reporter.
+     */
+    public interface Sink {
+
+        /**
+         * The method writes one formatted message.
+         *
+         * @param message message with time, thread and source of the error.
+         * @param cause exception which causes the error or <code>null</code>,
+         * its stack trace should be written with the message.
+         */
+        void write(String message, Throwable cause);
+    }
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static ErrorReporter instance;
+
+    private Event[] ring;
+    private int head;
+    private int count;
+    private ReentrantLock lock = new ReentrantLock();
+    private Condition notEmpty = lock.newCondition();
+    private volatile Sink sink;
+    private volatile boolean closed;
+    private Thread writer;
+    private AtomicLong reported = new AtomicLong();
+    private AtomicLong dropped = new AtomicLong();
+    private SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /**
+     * Creates a new instance of <code>ErrorReporter</code> and starts its
+     * background thread.
+     *
+     * @param capacity maximum number of messages waiting for the sink.
+     * @param sink destination of messages.
+     */
+    public ErrorReporter(int capacity, Sink sink) {
+        ring = new Event[Math.max(1, capacity)];
+        this.sink = sink;
+        writer = new Thread(this, "error-reporter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * The method returns reporter shared by server classes. The reporter is
+     * created on first call and writes messages to {@link Log}.
+     *
+     * @return shared reporter.
+     */
+    public static synchronized ErrorReporter getInstance() {
+        if (instance == null) {
+            instance = new ErrorReporter(DEFAULT_CAPACITY, logSink());
+        }
+        return instance;
+    }
+
+    /**
+     * The method returns sink which passes messages to {@link Log}.
+     *
+     * @return log sink.
+     */
+    public static Sink logSink() {
+        return new Sink() {
+            @Override
+            public void write(String message, Throwable cause) {
+                Log.write(message, cause);
+            }
+        };
+    }
+
+    /**
+     * The method returns sink which prints messages to the stream.
+     *
+     * @param out target stream.
+     * @return console sink.
+     */
+    public static Sink consoleSink(final PrintStream out) {
+        return new Sink() {
+            @Override
+            public void write(String message, Throwable cause) {
+                out.println(message);
+                if (cause != null) {
+                    cause.printStackTrace(out);
+                }
+            }
+        };
+    }
+
+    /**
+     * The method returns sink which shows every message in a modal dialog.
+     * Only the background thread of the reporter waits for the dialog. In a
+     * headless environment the method returns console sink.
+     *
+     * @return dialog sink.
+     */
+    public static Sink dialogSink() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return consoleSink(System.err);
+        }
+        return new Sink() {
+            @Override
+            public void write(String message, Throwable cause) {
+                if (cause != null) {
+                    message += "\n" + cause;
+                }
+                JFrame errorWindow = new JFrame();
+                errorWindow.setAlwaysOnTop(true);
+                JOptionPane.showMessageDialog(errorWindow, message, "Error",
+                        JOptionPane.ERROR_MESSAGE);
+                errorWindow.dispose();
+            }
+        };
+    }
+
+    /**
+     * The method replaces destination of messages.
+     *
+     * @param sink new destination of messages.
+     */
+    public void setSink(Sink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * The method puts the message into the buffer and returns immediately.
+     * Source of the message is the method which calls this one.
+     *
+     * @param message error message.
+     */
+    public void report(String message) {
+        report(message, null);
+    }
+
+    /**
+     * The method puts the message into the buffer and returns immediately.
+     * Source of the message is the method which calls this one.
+     *
+     * @param message error message.
+     * @param cause exception which causes the error or <code>null</code>.
+     */
+    public void report(String message, Throwable cause) {
+        reported.incrementAndGet();
+        StackTraceElement source = null;
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            if (!element.getClassName().equals(ErrorReporter.class.getName())) {
+                source = element;
+                break;
+            }
+        }
+        Event event = new Event(System.currentTimeMillis(),
+                Thread.currentThread().getName(), source, message, cause);
+        if (closed) {
+            write(event);
+            return;
+        }
+        lock.lock();
+        try {
+            if (count == ring.length) {
+                dropped.incrementAndGet();
+                return;
+            }
+            ring[(head + count) % ring.length] = event;
+            ++count;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * The method writes messages from the buffer until the reporter is
+     * closed.
+     */
+    @Override
+    public void run() {
+        Event event;
+        while ((event = take()) != null) {
+            write(event);
+        }
+    }
+
+    private Event take() {
+        lock.lock();
+        try {
+            while (count == 0) {
+                if (closed) {
+                    return null;
+                }
+                notEmpty.await();
+            }
+            Event event = ring[head];
+            ring[head] = null;
+            head = (head + 1) % ring.length;
+            --count;
+            return event;
+        } catch (InterruptedException ex) {
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void write(Event event) {
+        String text;
+        synchronized (format) {
+            text = format.format(new Date(event.time));
+        }
+        StringBuilder message = new StringBuilder(text)
+                .append(" [").append(event.thread).append("] ");
+        if (event.source != null) {
+            message.append(event.source.getClassName()).append('.')
+                    .append(event.source.getMethodName()).append("(): ")
+                    .append(event.source.getLineNumber()).append(' ');
+        }
+        message.append(event.message);
+        try {
+            sink.write(message.toString(), event.cause);
+        } catch (RuntimeException ex) {
+            System.err.println(message);
+            if (event.cause != null) {
+                event.cause.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * The method stops accepting messages into the buffer and waits until
+     * the background thread writes the buffered messages. Messages reported
+     * after closing are written by the reporting thread.
+     *
+     * @param timeout maximum time in milliseconds to wait.
+     */
+    public void close(long timeout) {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join(timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of reported messages.
+     */
+    public long getReportedCount() {
+        return reported.get();
+    }
+
+    /**
+     * @return number of messages dropped because the buffer was full.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of messages waiting for the sink.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class Event {
+
+        private long time;
+        private String thread;
+        private StackTraceElement source;
+        private String message;
+        private Throwable cause;
+
+        Event(long time, String thread, StackTraceElement source,
+                String message, Throwable cause) {
+            this.time = time;
+            this.thread = thread;
+            this.source = source;
+            this.message = message;
+            this.cause = cause;
+        }
+    }
+}
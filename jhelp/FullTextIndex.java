@@ -0,0 +1,352 @@
+/*
+ * FullTextIndex.java
+ */
+package jhelp;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class presents in-memory inverted index over texts of definitions.
+ * Texts are split into tokens by {@link Tokenizer}, every token has a
+ * postings list of documents containing it. Documents are numbered in order
+ * they are added, a postings list keeps differences of document numbers
+ * and frequencies of the token as variable-length integers, so most
+ * postings take two bytes.
+ * <p>
+ * Found definitions are ranked by BM25 formula. The index follows the
+ * storage as {@link StorageEngine.Listener}: a changed definition is added
+ * as a new document, a changed or removed document is only marked as
+ * deleted. When deleted documents exceed a quarter of all documents,
+ * postings lists are rebuilt without them. Until then frequencies of tokens
+ * include deleted documents, which slightly changes ranks but not results.
+ *
+ * @see jhelp.Tokenizer
+ */
+public class FullTextIndex implements StorageEngine.Listener {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int MIN_GARBAGE = 1024;
+
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, Postings> dictionary = new HashMap<>();
+    private IntMap<Integer> numbers = new IntMap<>();
+    private int[] documents = new int[64];
+    private int[] lengths = new int[64];
+    private BitSet deleted = new BitSet();
+    private int count;
+    private int live;
+    private long totalLength;
+
+    /**
+     * The method builds the index from all definitions of the storage.
+     *
+     * @param engine storage of definitions.
+     * @return index of definitions or <code>null</code> if the storage
+     * can't be read.
+     */
+    public static FullTextIndex load(StorageEngine engine) {
+        FullTextIndex index = new FullTextIndex();
+        int status = engine.scan((termId, term, definitions) -> {
+            for (Item definition : definitions) {
+                index.definitionAdded(definition.getId(), definition.getItem());
+            }
+        });
+        return status == JHelp.OK ? index : null;
+    }
+
+    @Override
+    public void termAdded(int termId, String term) {
+    }
+
+    @Override
+    public void termRemoved(int termId, String term) {
+    }
+
+    @Override
+    public void definitionAdded(int definitionId, String text) {
+        Map<String, Integer> frequencies = new LinkedHashMap<>();
+        List<String> tokens = Tokenizer.tokens(text);
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            delete(definitionId);
+            if (tokens.isEmpty()) {
+                return;
+            }
+            if (count == documents.length) {
+                documents = Arrays.copyOf(documents, count << 1);
+                lengths = Arrays.copyOf(lengths, count << 1);
+            }
+            int number = count++;
+            documents[number] = definitionId;
+            lengths[number] = tokens.size();
+            numbers.put(definitionId, number);
+            ++live;
+            totalLength += tokens.size();
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                dictionary.computeIfAbsent(entry.getKey(), token -> new Postings())
+                        .add(number, entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void definitionRemoved(int definitionId) {
+        lock.writeLock().lock();
+        try {
+            delete(definitionId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void delete(int definitionId) {
+        Integer number = numbers.remove(definitionId);
+        if (number == null) {
+            return;
+        }
+        deleted.set(number);
+        --live;
+        totalLength -= lengths[number];
+        if (count - live > Math.max(MIN_GARBAGE, count / 4)) {
+            rebuild();
+        }
+    }
+
+    /**
+     * The method renumbers live documents and rewrites postings lists
+     * without deleted documents.
+     */
+    private void rebuild() {
+        int[] renumber = new int[count];
+        int next = 0;
+        for (int i = 0; i < count; ++i) {
+            if (deleted.get(i)) {
+                renumber[i] = -1;
+            } else {
+                documents[next] = documents[i];
+                lengths[next] = lengths[i];
+                numbers.put(documents[next], next);
+                renumber[i] = next++;
+            }
+        }
+        Map<String, Postings> rebuilt = new HashMap<>(dictionary.size());
+        for (Map.Entry<String, Postings> entry : dictionary.entrySet()) {
+            Postings postings = new Postings();
+            Postings.Reader reader = entry.getValue().reader();
+            while (reader.next()) {
+                if (renumber[reader.document] >= 0) {
+                    postings.add(renumber[reader.document], reader.frequency);
+                }
+            }
+            if (postings.size > 0) {
+                postings.trim();
+                rebuilt.put(entry.getKey(), postings);
+            }
+        }
+        dictionary = rebuilt;
+        deleted.clear();
+        count = next;
+    }
+
+    /**
+     * The method returns definitions containing words of the query in order
+     * of their BM25 rank. A definition is found if it contains at least one
+     * word of the query.
+     *
+     * @param query words to search.
+     * @param limit maximum number of definitions.
+     * @return identificators of definitions, the best definition first.
+     */
+    public int[] search(String query, int limit) {
+        String[] tokens = Tokenizer.tokens(query).stream().distinct().toArray(String[]::new);
+        Hit[] hits;
+        lock.readLock().lock();
+        try {
+            if (live == 0 || limit <= 0) {
+                return new int[0];
+            }
+            double average = (double) totalLength / live;
+            Map<Integer, Hit> scores = new HashMap<>();
+            for (String token : tokens) {
+                Postings postings = dictionary.get(token);
+                if (postings == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (count - postings.size + 0.5) / (postings.size + 0.5));
+                Postings.Reader reader = postings.reader();
+                while (reader.next()) {
+                    int number = reader.document;
+                    if (deleted.get(number)) {
+                        continue;
+                    }
+                    double norm = K1 * (1 - B + B * lengths[number] / average);
+                    double score = idf * reader.frequency * (K1 + 1) / (reader.frequency + norm);
+                    scores.computeIfAbsent(number, n -> new Hit(documents[n])).score += score;
+                }
+            }
+            PriorityQueue<Hit> top = new PriorityQueue<>(limit + 1, FullTextIndex::compare);
+            for (Hit hit : scores.values()) {
+                top.add(hit);
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            }
+            hits = top.toArray(new Hit[top.size()]);
+        } finally {
+            lock.readLock().unlock();
+        }
+        Arrays.sort(hits, (a, b) -> compare(b, a));
+        int[] result = new int[hits.length];
+        for (int i = 0; i < hits.length; ++i) {
+            result[i] = hits[i].definitionId;
+        }
+        return result;
+    }
+
+    /**
+     * Hits are compared by score, hits with equal score by identificators:
+     * older definitions are ranked higher.
+     */
+    private static int compare(Hit a, Hit b) {
+        int result = Double.compare(a.score, b.score);
+        return result != 0 ? result : Integer.compare(b.definitionId, a.definitionId);
+    }
+
+    /**
+     * @return number of indexed definitions.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of distinct tokens.
+     */
+    public int getTokens() {
+        lock.readLock().lock();
+        try {
+            return dictionary.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return approximate size of postings lists and document arrays in
+     * bytes.
+     */
+    public long getMemoryBytes() {
+        lock.readLock().lock();
+        try {
+            long bytes = 8L * documents.length + deleted.size() / 8;
+            for (Postings postings : dictionary.values()) {
+                bytes += postings.bytes.length;
+            }
+            return bytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static class Hit {
+
+        private final int definitionId;
+        private double score;
+
+        Hit(int definitionId) {
+            this.definitionId = definitionId;
+        }
+    }
+
+    /**
+     * Postings list of one token: pairs of document number difference and
+     * frequency written as variable-length integers, seven bits per byte.
+     */
+    private static class Postings {
+
+        private byte[] bytes = new byte[4];
+        private int length;
+        private int size;
+        private int last;
+
+        void add(int document, int frequency) {
+            write(document - last);
+            write(frequency);
+            last = document;
+            ++size;
+        }
+
+        private void write(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length << 1, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void trim() {
+            bytes = Arrays.copyOf(bytes, length);
+        }
+
+        Reader reader() {
+            return new Reader(this);
+        }
+
+        private static class Reader {
+
+            private final byte[] bytes;
+            private final int length;
+            private int position;
+            private int document;
+            private int frequency;
+
+            Reader(Postings postings) {
+                this.bytes = postings.bytes;
+                this.length = postings.length;
+            }
+
+            boolean next() {
+                if (position >= length) {
+                    return false;
+                }
+                document += read();
+                frequency = read();
+                return true;
+            }
+
+            private int read() {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                return value;
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Handshake.java
+ */
+package jhelp;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.net.Socket;
+
+/**
+ * This class negotiates {@link jhelp.WireProtocol} when a client connects to
+ * the server. A client of {@link jhelp.BinaryProtocol} starts the connection
+ * with bytes <code>'J' 'H' version</code> and the server answers the same
+ * bytes with version it supports. A legacy client starts with header of Java
+ * serialization stream, and the server answers by {@link jhelp.SerialProtocol}
+ * if legacy protocol is allowed.
+ */
+public final class Handshake {
+
+    private static final byte MAGIC_0 = 'J';
+    private static final byte MAGIC_1 = 'H';
+    private static final int SERIAL_MAGIC_0 = 0xAC;
+    private static final int SERIAL_MAGIC_1 = 0xED;
+
+    private Handshake() {
+    }
+
+    /**
+     * The method negotiates protocol on the server side of the connection.
+     *
+     * @param socket accepted connection.
+     * @param legacy <code>true</code> if {@link jhelp.SerialProtocol} is
+     * allowed.
+     * @return protocol chosen by the client.
+     * @throws IOException if the client uses unknown or not allowed protocol.
+     */
+    public static WireProtocol accept(Socket socket, boolean legacy) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+        in.mark(2);
+        int b0 = in.read();
+        int b1 = in.read();
+        if (b0 == MAGIC_0 && b1 == MAGIC_1) {
+            int version = in.read();
+            if (version < 1) {
+                throw new StreamCorruptedException("Wrong protocol version " + version);
+            }
+            byte agreed = (byte) Math.min(version, DataCodec.VERSION);
+            out.write(new byte[]{MAGIC_0, MAGIC_1, agreed});
+            out.flush();
+            return new BinaryProtocol(in, out, agreed);
+        }
+        if (legacy && b0 == SERIAL_MAGIC_0 && b1 == SERIAL_MAGIC_1) {
+            in.reset();
+            return new SerialProtocol(in, out);
+        }
+        throw new StreamCorruptedException("Unknown protocol");
+    }
+
+    /**
+     * The method negotiates protocol on the client side of the connection.
+     *
+     * @param socket connection with the server.
+     * @param name name of protocol: {@link BinaryProtocol#NAME} or
+     * {@link SerialProtocol#NAME}.
+     * @return protocol for the connection.
+     * @throws IOException if the server doesn't support the protocol.
+     */
+    public static WireProtocol open(Socket socket, String name) throws IOException {
+        InputStream in = new BufferedInputStream(socket.getInputStream());
+        OutputStream out = socket.getOutputStream();
+        if (SerialProtocol.NAME.equals(name)) {
+            return new SerialProtocol(in, out);
+        }
+        out.write(new byte[]{MAGIC_0, MAGIC_1, DataCodec.VERSION});
+        out.flush();
+        if (in.read() != MAGIC_0 || in.read() != MAGIC_1) {
+            throw new StreamCorruptedException("Server doesn't support binary protocol");
+        }
+        int version = in.read();
+        if (version < 1 || version > DataCodec.VERSION) {
+            throw new StreamCorruptedException("Wrong protocol version " + version);
+        }
+        return new BinaryProtocol(in, out, (byte) version);
+    }
+}
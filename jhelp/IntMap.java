@@ -0,0 +1,215 @@
+/*
+ * IntMap.java
+ */
+package jhelp;
+
+import java.util.Arrays;
+
+/**
+ * This class presents hash map with keys of <code>int</code> type. Keys
+ * are kept in a plain array with open addressing and linear probing, so
+ * the map doesn't create an entry object or a boxed key for every mapping.
+ * Removal shifts following keys of the probe chain back, the map has no
+ * deleted markers. Key 0 is reserved as a free slot and can't be used. The
+ * map isn't thread safe.
+ *
+ * @param <V> type of values.
+ * @see jhelp.MemoryStorageEngine
+ */
+public class IntMap<V> {
+
+    /**
+     * Receiver of mappings passed by {@link IntMap#forEach(Visitor)}.
+     *
+     * @param <V> type of values.
+     */
+    public interface Visitor<V> {
+
+        /**
+         * The method receives one mapping.
+         *
+         * @param key key of the mapping.
+         * @param value value of the mapping.
+         */
+        void visit(int key, V value);
+    }
+
+    private static final int FREE = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    /**
+     * Creates a new empty instance of <code>IntMap</code>.
+     */
+    public IntMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty instance of <code>IntMap</code>.
+     *
+     * @param expected number of mappings the map holds without resizing.
+     */
+    public IntMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expected) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /**
+     * @param key key of the mapping.
+     * @return value of the key or <code>null</code> if the map has no such
+     * key.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        int slot = find(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * The method maps the key to the value.
+     *
+     * @param key key of the mapping, not 0.
+     * @param value value of the mapping.
+     * @return previous value of the key or <code>null</code>.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(int key, V value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Key 0 is reserved");
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                V old = (V) values[slot];
+                values[slot] = value;
+                return old;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > (mask + 1) * 3 / 4) {
+            resize((mask + 1) << 1);
+        }
+        return null;
+    }
+
+    /**
+     * The method removes mapping of the key.
+     *
+     * @param key key of the mapping.
+     * @return removed value or <code>null</code> if the map has no such key.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(int key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return null;
+        }
+        V old = (V) values[slot];
+        int free = slot;
+        int next = (free + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                keys[free] = keys[next];
+                values[free] = values[next];
+                free = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[free] = FREE;
+        values[free] = null;
+        --size;
+        return old;
+    }
+
+    /**
+     * @param key key of the mapping.
+     * @return <code>true</code> if the map has the key.
+     */
+    public boolean containsKey(int key) {
+        return find(key) >= 0;
+    }
+
+    /**
+     * @return number of mappings.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The method removes all mappings.
+     */
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * The method passes all mappings to the visitor in no particular order.
+     * The map must not be changed by the visitor.
+     *
+     * @param visitor receiver of mappings.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != FREE) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    private int find(int key) {
+        if (key == FREE) {
+            return -1;
+        }
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; ++i) {
+            int key = oldKeys[i];
+            if (key != FREE) {
+                int slot = hash(key) & mask;
+                while (keys[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
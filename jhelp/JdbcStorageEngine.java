@@ -0,0 +1,912 @@
+/*
+ * JdbcStorageEngine.java
+ */
+package jhelp;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * This class presents {@link StorageEngine} which keeps terms and
+ * definitions in a relational database. Terms are stored in
+ * <code>tblTerms</code> table, definitions in <code>tblDefinitions</code>
+ * table. Statements are read from scripts of {@link JHelp#SCRIPT_PATH}
+ * directory and prepared on connections of {@link ConnectionPool}. Changing
+ * requests may be committed in groups by {@link WriteCoalescer}. The
+ * database is served by Derby network server or opened by Derby engine
+ * inside the server process. Tables and indexes are created and upgraded by
+ * {@link SchemaMigrator} on open.
+ *
+ * @see jhelp.ServerDb
+ */
+public class JdbcStorageEngine implements StorageEngine {
+
+    private static final Log LOG = Log.getLog(JdbcStorageEngine.class);
+
+    /**
+     * Term search by scan of all terms.
+     */
+    public static final String SCAN_INDEX = "scan";
+    /**
+     * Term search by index of trigrams with scan as fallback.
+     */
+    public static final String TRIGRAM_INDEX = "trigram";
+    /**
+     * Database is served by Derby network server.
+     */
+    public static final String NETWORK_MODE = "network";
+    /**
+     * Database is opened by Derby engine inside the server process.
+     */
+    public static final String EMBEDDED_MODE = "embedded";
+    private static final String ENGINE_SHUTDOWN_STATE = "XJ015";
+    private static final String DUPLICATE_KEY_STATE = "23505";
+    private static final long EXIT_TIMEOUT = 1000;
+    private static final int ID_CHUNK = 128;
+    private ConnectionPool pool;
+    private String dbName;
+    private String user;
+    private String password;
+    private ErrorReporter errors = ErrorReporter.getInstance();
+    private List<StorageEngine.Listener> listeners = new CopyOnWriteArrayList<>();
+    private ThreadLocal<StorageEvents> pending = ThreadLocal.withInitial(StorageEvents::new);
+    private String selectDefinitionScript;
+    private String insertTerminScript;
+    private String selectTerminScript;
+    private String deleteTerminScript;
+    private String insertDefinitionScript;
+    private String updateDefinitionScript;
+    private String deleteDefinitionScript;
+    private String countDefinitionScript;
+    private String selectDefinitionPreviousScript;
+    private String selectDefinitionByGramsScript;
+    private String selectDefinitionByGramsPreviousScript;
+    private String insertTermGramScript;
+    private String deleteTermGramsScript;
+    private String selectAllTerminsScript;
+    private String countTermGramsScript;
+    private String selectTerminByIdScript;
+    private String selectAllDefinitionsScript;
+    private String selectDefinitionsByIdScript;
+    private String selectDefinitionOfTermsScript;
+    private String selectDefinitionOfTermsPreviousScript;
+    private boolean trigramIndex;
+    private volatile boolean batchKeys = true;
+    private int pageSize;
+    private int groupSize;
+    private long groupWindow;
+    private WriteCoalescer coalescer;
+    private String connectString;
+    private String driver;
+    private boolean embedded;
+    private String embeddedUrl;
+    private int poolSize;
+    private int poolPrewarm;
+    private long poolTimeout;
+
+    {
+        selectDefinitionScript = initScript("selectDefinition.sql");
+        insertTerminScript = initScript("insertTermin.sql");
+        selectTerminScript = initScript("selectTermin.sql");
+        deleteTerminScript = initScript("deleteTermin.sql");
+        insertDefinitionScript = initScript("insertDefinition.sql");
+        updateDefinitionScript = initScript("updateDefinition.sql");
+        deleteDefinitionScript = initScript("deleteDefinition.sql");
+        countDefinitionScript = initScript("countDefinition.sql");
+        selectDefinitionPreviousScript = initScript("selectDefinitionPrevious.sql");
+        selectDefinitionByGramsScript = initScript("selectDefinitionByGrams.sql");
+        selectDefinitionByGramsPreviousScript = initScript("selectDefinitionByGramsPrevious.sql");
+        insertTermGramScript = initScript("insertTermGram.sql");
+        deleteTermGramsScript = initScript("deleteTermGrams.sql");
+        selectAllTerminsScript = initScript("selectAllTermins.sql");
+        countTermGramsScript = initScript("countTermGrams.sql");
+        selectTerminByIdScript = initScript("selectTerminById.sql");
+        selectAllDefinitionsScript = initScript("selectAllDefinitions.sql");
+        selectDefinitionsByIdScript = idList(initScript("selectDefinitionsById.sql"));
+        selectDefinitionOfTermsScript = idList(initScript("selectDefinitionOfTerms.sql"));
+        selectDefinitionOfTermsPreviousScript = idList(
+                initScript("selectDefinitionOfTermsPrevious.sql"));
+    }
+
+    /**
+     * Creates a new instance of <code>JdbcStorageEngine</code>.
+     *
+     * @param config parameters of <code>serverDb.cfg</code> file.
+     * @param port port of Derby network server.
+     */
+    public JdbcStorageEngine(Properties config, int port) {
+        user = config.getProperty("user");
+        password = config.getProperty("password");
+        dbName = config.getProperty("dbName");
+        embedded = EMBEDDED_MODE.equals(config.getProperty("mode", NETWORK_MODE));
+        embeddedUrl = config.getProperty("embeddedUrl", "jdbc:derby:");
+        driver = embedded ? config.getProperty("embeddedDriver",
+                "org.apache.derby.jdbc.EmbeddedDriver") : config.getProperty("driver");
+        poolSize = Integer.valueOf(config.getProperty("poolSize", "8"));
+        poolPrewarm = Integer.valueOf(config.getProperty("poolPrewarm", "2"));
+        poolTimeout = Long.valueOf(config.getProperty("poolTimeout", "5000"));
+        trigramIndex = TRIGRAM_INDEX.equals(config.getProperty("termIndex", SCAN_INDEX));
+        pageSize = Integer.valueOf(config.getProperty("pageSize", "20"));
+        groupSize = Integer.valueOf(config.getProperty("groupSize", "1"));
+        groupWindow = Long.valueOf(config.getProperty("groupWindow", "2000"));
+        if (embedded) {
+            connectString = embeddedUrl + config.getProperty("dbPath", dbName);
+        } else {
+            connectString = config.getProperty("url") + ":" + port + "/" + dbName;
+        }
+    }
+
+    /**
+     * The method reads one page of definitions for the term. No more than
+     * <code>pageSize</code> definitions are read, one more row is fetched to
+     * know if the next page exists.
+     */
+    @Override
+    public Data select(Data data) {
+        boolean backward = data.getOperation() == JHelp.PREVIOUS;
+        int cursor = data.getOperation() == JHelp.SELECT ? 0 : data.getCursor();
+        try (PooledConnection con = pool.acquire()) {
+            String term = data.getKey().getItem();
+            PreparedStatement pstmt = prepareSelect(con, term, cursor, backward);
+            pstmt.setMaxRows(pageSize + 1);
+            List<Item> page = new ArrayList<>(pageSize + 1);
+            int termId = -1;
+            try (ResultSet result = pstmt.executeQuery()) {
+                while (result.next()) {
+                    page.add(new Item(result.getInt("id"), result.getString("definition"),
+                            JHelp.ORIGIN));
+                    termId = result.getInt("trem_id");
+                }
+            }
+            setPage(data, page, termId, backward);
+        } catch (SQLException ex) {
+            errors.report("SQL-select error: " + ex.getMessage());
+            data.setOperation(JHelp.ERROR);
+        }
+        return data;
+    }
+
+    /**
+     * The method reads one page of definitions of the terms. Terms are
+     * passed by chunks of <code>ID_CHUNK</code> identificators, pages of
+     * chunks are merged by identificators of definitions, so the result is
+     * the same page which {@link #select(Data)} reads for all the terms.
+     */
+    @Override
+    public Data select(Data data, int[] termIds) {
+        boolean backward = data.getOperation() == JHelp.PREVIOUS;
+        int cursor = data.getOperation() == JHelp.SELECT ? 0 : data.getCursor();
+        try (PooledConnection con = pool.acquire()) {
+            PreparedStatement pstmt = con.prepare(backward
+                    ? selectDefinitionOfTermsPreviousScript : selectDefinitionOfTermsScript);
+            pstmt.setMaxRows(pageSize + 1);
+            List<Item> rows = new ArrayList<>();
+            IntMap<Integer> terms = new IntMap<>();
+            for (int from = 0; from < termIds.length; from += ID_CHUNK) {
+                setIds(pstmt, termIds, from);
+                pstmt.setInt(ID_CHUNK + 1, cursor);
+                try (ResultSet result = pstmt.executeQuery()) {
+                    while (result.next()) {
+                        Item item = new Item(result.getInt("id"),
+                                result.getString("definition"), JHelp.ORIGIN);
+                        rows.add(item);
+                        terms.put(item.getId(), result.getInt("trem_id"));
+                    }
+                }
+            }
+            rows.sort((a, b) -> backward ? Integer.compare(b.getId(), a.getId())
+                    : Integer.compare(a.getId(), b.getId()));
+            List<Item> page = new ArrayList<>(rows.subList(0, Math.min(rows.size(),
+                    pageSize + 1)));
+            int termId = page.isEmpty() ? -1 : terms.get(page.get(page.size() - 1).getId());
+            setPage(data, page, termId, backward);
+        } catch (SQLException ex) {
+            errors.report("SQL-select error: " + ex.getMessage());
+            data.setOperation(JHelp.ERROR);
+        }
+        return data;
+    }
+
+    /**
+     * The method sets the page to the result of the request.
+     *
+     * @param data request.
+     * @param page rows read in order of the request, with one extra row if
+     * the next page exists.
+     * @param termId term of the last row of the page.
+     * @param backward <code>true</code> if the page is before the cursor.
+     */
+    private void setPage(Data data, List<Item> page, int termId, boolean backward) {
+        boolean more = page.size() > pageSize;
+        if (more) {
+            page.remove(pageSize);
+        }
+        if (backward) {
+            Collections.reverse(page);
+        }
+        data.setValues(page.toArray(new Item[page.size()]));
+        data.setCursor(0);
+        if (!page.isEmpty()) {
+            if (more || backward) {
+                data.setCursor(page.get(page.size() - 1).getId());
+            }
+            data.getKey().setId(termId);
+            data.setOperation(JHelp.ORIGIN);
+        }
+    }
+
+    @Override
+    public Data insert(Data data) {
+        return writeData(data);
+    }
+
+    @Override
+    public Data update(Data data) {
+        return writeData(data);
+    }
+
+    @Override
+    public Data delete(Data data) {
+        return writeData(data);
+    }
+
+    /**
+     * The method executes changing request in its own transaction or passes
+     * it to {@link WriteCoalescer} object if group commit is enabled.
+     */
+    private Data writeData(Data data) {
+        if (coalescer != null) {
+            return coalescer.submit(data);
+        }
+        try (PooledConnection con = pool.acquire()) {
+            con.getConnection().setAutoCommit(false);
+            Data result = write(con, data);
+            con.getConnection().commit();
+            committed();
+            return result;
+        } catch (SQLException ex) {
+            errors.report("SQL-write error: " + ex.getMessage());
+            data.setOperation(JHelp.ERROR);
+        } finally {
+            rolledBack();
+        }
+        return data;
+    }
+
+    /**
+     * The method sends changes of the committed transaction of the current
+     * thread to listeners.
+     */
+    private void committed() {
+        pending.get().fire(listeners);
+    }
+
+    /**
+     * The method drops changes of the transaction of the current thread
+     * which isn't committed.
+     */
+    private void rolledBack() {
+        pending.get().clear();
+    }
+
+    /**
+     * The method executes changing request on the connection without
+     * commit.
+     *
+     * @param con connection with disabled auto-commit mode.
+     * @param data request of {@link JHelp#INSERT}, {@link JHelp#UPDATE} or
+     * {@link JHelp#DELETE} operation.
+     * @return result of the request.
+     * @throws SQLException
+     */
+    private Data write(PooledConnection con, Data data) throws SQLException {
+        switch (data.getOperation()) {
+            case JHelp.INSERT:
+                return insertData(con, data);
+            case JHelp.UPDATE:
+                return updateData(con, data);
+            case JHelp.DELETE:
+                return deleteData(con, data);
+            default:
+                return data;
+        }
+    }
+
+    /**
+     * The method finds or creates the term and adds all definitions with
+     * {@link JHelp#INSERT} state by one batch. Identificators generated for
+     * the definitions are set to their items.
+     */
+    private Data insertData(PooledConnection con, Data data) throws SQLException {
+        List<Item> items = new ArrayList<>();
+        for (Item item : data.getValues()) {
+            if (item.getState() == JHelp.INSERT) {
+                items.add(item);
+            }
+        }
+        if (items.isEmpty()) {
+            return data;
+        }
+        int termId = upsertTerm(con, data.getKey().getItem());
+        if (termId <= 0) {
+            errors.report("Termin isn't inserted into Db");
+            return data;
+        }
+        int[] ids = insertIntoTblDefinitions(con, items, termId);
+        for (int i = 0; i < items.size(); ++i) {
+            items.get(i).setId(ids[i]);
+            items.get(i).setState(JHelp.ORIGIN);
+            pending.get().definitionAdded(ids[i], items.get(i).getItem());
+        }
+        pending.get().termChanged(termId, data.getKey().getItem());
+        data.getKey().setId(termId);
+        data.setOperation(JHelp.ORIGIN);
+        return data;
+    }
+
+    /**
+     * The method returns identificator of the term with the same normalized
+     * text, the term is inserted if it doesn't exist. If another server
+     * inserts the term at the same time, unique constraint of
+     * <code>TERM_KEY</code> column rejects the second insert, which then
+     * reads the term inserted first. Only the failed statement is rolled
+     * back, the transaction goes on.
+     */
+    private int upsertTerm(PooledConnection con, String term) throws SQLException {
+        int termId = selectTermId(con, term);
+        if (termId > 0) {
+            return termId;
+        }
+        try {
+            return insertIntoTblTerms(con, term);
+        } catch (SQLException ex) {
+            if (!DUPLICATE_KEY_STATE.equals(ex.getSQLState())) {
+                throw ex;
+            }
+            LOG.debug(() -> "term is inserted concurrently: " + term);
+            return selectTermId(con, term);
+        }
+    }
+
+    private int selectTermId(PooledConnection con, String term) throws SQLException {
+        PreparedStatement pstmt = con.prepare(selectTerminScript);
+        pstmt.setString(1, Terms.normalize(term));
+        try (ResultSet result = pstmt.executeQuery()) {
+            return result.next() ? result.getInt("id") : -1;
+        }
+    }
+
+    private Data updateData(PooledConnection con, Data data) throws SQLException {
+        PreparedStatement pstmt = con.prepare(updateDefinitionScript);
+        List<Item> items = new ArrayList<>();
+        for (Item item : data.getValues()) {
+            if (item.getState() != JHelp.UPDATE) {
+                continue;
+            }
+            int defId = item.getId();
+            String newDef = item.getItem();
+            pstmt.setString(1, newDef);
+            pstmt.setInt(2, defId);
+            pstmt.addBatch();
+            items.add(item);
+        }
+        int[] countRows = pstmt.executeBatch();
+        for (int i = 0; i < countRows.length && i < items.size(); ++i) {
+            if (countRows[i] != 0) {
+                pending.get().definitionAdded(items.get(i).getId(), items.get(i).getItem());
+            }
+        }
+        if (countRows.length > 0 && countRows[0] > 0) {
+            data.setOperation(JHelp.ORIGIN);
+            for (Item item : data.getValues()) {
+                item.setState(JHelp.ORIGIN);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * The method deletes definitions of the request and the term if it has
+     * no more definitions. Both deletions are committed together by the
+     * caller.
+     */
+    private Data deleteData(PooledConnection con, Data data) throws SQLException {
+        int deleteTerms = -1;
+        int countDefinitions = -1;
+        PreparedStatement pstmt = con.prepare(deleteDefinitionScript);
+        int termId = data.getKey().getId();
+        List<Item> items = new ArrayList<>();
+        for (Item item : data.getValues()) {
+            if (item.getState() != JHelp.DELETE) {
+                continue;
+            }
+            int defId = item.getId();
+            pstmt.setInt(1, defId);
+            pstmt.addBatch();
+            items.add(item);
+        }
+        int[] deleteDef = pstmt.executeBatch();
+        for (int i = 0; i < deleteDef.length && i < items.size(); ++i) {
+            if (deleteDef[i] != 0) {
+                pending.get().definitionRemoved(items.get(i).getId());
+            }
+        }
+        pstmt = con.prepare(countDefinitionScript);
+        pstmt.setInt(1, termId);
+        try (ResultSet result = pstmt.executeQuery()) {
+            while (result.next()) {
+                countDefinitions = result.getInt(1);
+            }
+        }
+        if (countDefinitions == 0) {
+            String term = null;
+            pstmt = con.prepare(selectTerminByIdScript);
+            pstmt.setInt(1, termId);
+            try (ResultSet result = pstmt.executeQuery()) {
+                if (result.next()) {
+                    term = result.getString("term");
+                }
+            }
+            pstmt = con.prepare(deleteTermGramsScript);
+            pstmt.setInt(1, termId);
+            pstmt.executeUpdate();
+            pstmt = con.prepare(deleteTerminScript);
+            pstmt.setInt(1, termId);
+            deleteTerms = pstmt.executeUpdate();
+            if (deleteTerms > 0) {
+                pending.get().termRemoved(termId, term);
+            }
+        }
+        if (deleteDef.length > 0 && deleteTerms != 0) {
+            for (Item item : data.getValues()) {
+                if (item.getState() == JHelp.DELETE) {
+                    item.setState(JHelp.ORIGIN);
+                }
+            }
+            data.setOperation(JHelp.ORIGIN);
+        }
+        return data;
+    }
+
+    /**
+     * The method prepares search of definitions by term. Terms are matched
+     * by their normalized <code>TERM_KEY</code> column. If trigram index is
+     * enabled and the term may be indexed, the statement looks for terms
+     * containing the first and the last trigram of the term and checks only
+     * them by <code>like</code> predicate. Otherwise all terms are scanned.
+     *
+     * @param con connection to database.
+     * @param term requested term.
+     * @param cursor identificator of definition the page starts after.
+     * @param backward <code>true</code> if the page is before the cursor.
+     * @return statement with all parameters set.
+     * @throws SQLException
+     */
+    private PreparedStatement prepareSelect(PooledConnection con, String term,
+            int cursor, boolean backward) throws SQLException {
+        PreparedStatement pstmt;
+        String key = Terms.normalize(term);
+        if (!trigramIndex || !Terms.isIndexable(key)) {
+            pstmt = con.prepare(backward
+                    ? selectDefinitionPreviousScript : selectDefinitionScript);
+            pstmt.setString(1, "%" + key + "%");
+            pstmt.setInt(2, cursor);
+            return pstmt;
+        }
+        pstmt = con.prepare(backward
+                ? selectDefinitionByGramsPreviousScript : selectDefinitionByGramsScript);
+        pstmt.setString(1, key.substring(0, Terms.GRAM_LENGTH));
+        pstmt.setString(2, key.substring(key.length() - Terms.GRAM_LENGTH));
+        pstmt.setString(3, "%" + key + "%");
+        pstmt.setInt(4, cursor);
+        return pstmt;
+    }
+
+    /**
+     * The method inserts definitions of the term by one batch. Drivers which
+     * don't return generated keys of a batch, like Derby, return at most the
+     * last key. Then the batch is rolled back to a savepoint and definitions
+     * are inserted one by one, each with its own generated key; later
+     * batches are inserted one by one at once. Identificators are never
+     * guessed from the table, as another server may insert definitions of
+     * the same term at the same time. The caller's transaction must not be
+     * in auto-commit mode.
+     */
+    private int[] insertIntoTblDefinitions(PooledConnection con, List<Item> items,
+            int termId) throws SQLException {
+        if (batchKeys && items.size() > 1) {
+            Savepoint savepoint = con.getConnection().setSavepoint();
+            int[] ids = insertBatch(con, items, termId);
+            if (ids != null) {
+                return ids;
+            }
+            con.getConnection().rollback(savepoint);
+            batchKeys = false;
+            LOG.info("driver doesn't return generated keys of a batch, "
+                    + "definitions are inserted one by one");
+        }
+        PreparedStatement pstmt = con.prepareWithKeys(insertDefinitionScript);
+        int[] ids = new int[items.size()];
+        for (int i = 0; i < ids.length; ++i) {
+            pstmt.setString(1, items.get(i).getItem());
+            pstmt.setInt(2, termId);
+            if (pstmt.executeUpdate() != 1) {
+                throw new SQLException("Error insert data into table tblDefinitions. ");
+            }
+            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                if (generatedKeys == null || !generatedKeys.next()) {
+                    throw new SQLException("Identificator of inserted definition isn't returned");
+                }
+                ids[i] = (int) generatedKeys.getLong(1);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * The method inserts definitions by one batch.
+     *
+     * @return identificators of definitions or <code>null</code> if the
+     * driver doesn't return keys of all rows.
+     */
+    private int[] insertBatch(PooledConnection con, List<Item> items, int termId)
+            throws SQLException {
+        PreparedStatement pstmt = con.prepareWithKeys(insertDefinitionScript);
+        for (Item item : items) {
+            pstmt.setString(1, item.getItem());
+            pstmt.setInt(2, termId);
+            pstmt.addBatch();
+        }
+        int[] counts = pstmt.executeBatch();
+        for (int count : counts) {
+            if (count != 1 && count != Statement.SUCCESS_NO_INFO) {
+                throw new SQLException("Error insert data into table tblDefinitions. ");
+            }
+        }
+        int[] ids = new int[items.size()];
+        int found = 0;
+        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+            while (generatedKeys != null && generatedKeys.next() && found < ids.length) {
+                ids[found++] = (int) generatedKeys.getLong(1);
+            }
+        }
+        return found == ids.length ? ids : null;
+    }
+
+    private int insertIntoTblTerms(PooledConnection con, String term) throws SQLException {
+        int termId = -1;
+        PreparedStatement pstmt = con.prepareWithKeys(insertTerminScript);
+        pstmt.setString(1, term);
+        pstmt.setString(2, Terms.normalize(term));
+        int result = pstmt.executeUpdate();
+        if (result != 1) {
+            throw new SQLException("Error insert data into table tblTerms. ");
+        }
+        try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+            while (generatedKeys.next()) {
+                termId = (int) generatedKeys.getLong(1);
+            }
+        }
+        if (termId > 0) {
+            insertIntoTblTermGrams(con, term, termId);
+            pending.get().termAdded(termId, term);
+        }
+        return termId;
+    }
+
+    private void insertIntoTblTermGrams(PooledConnection con, String term, int termId)
+            throws SQLException {
+        Set<String> grams = Terms.trigrams(term);
+        if (grams.isEmpty()) {
+            return;
+        }
+        PreparedStatement pstmt = con.prepare(insertTermGramScript);
+        for (String gram : grams) {
+            pstmt.setString(1, gram);
+            pstmt.setInt(2, termId);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+
+    /**
+     * The method fills table of trigrams by trigrams of all terms if the
+     * table is empty, for example after the first start with trigram index.
+     *
+     * @param con connection to database.
+     * @throws SQLException
+     */
+    private void initTermIndex(PooledConnection con) throws SQLException {
+        try (Statement stmt = con.getConnection().createStatement()) {
+            try (ResultSet count = stmt.executeQuery(countTermGramsScript)) {
+                if (count.next() && count.getInt(1) > 0) {
+                    return;
+                }
+            }
+            LOG.info("build trigram index");
+            con.getConnection().setAutoCommit(false);
+            try (ResultSet terms = stmt.executeQuery(selectAllTerminsScript)) {
+                while (terms.next()) {
+                    insertIntoTblTermGrams(con, terms.getString("term"), terms.getInt("id"));
+                }
+            }
+        }
+        con.getConnection().commit();
+    }
+
+    /**
+     * The method loads JDBC driver, creates pool of connections to database,
+     * brings schema of the database to the current version and opens first
+     * connections of the pool with all scripts prepared on them.
+     *
+     * @return {@link JHelp#READY} in success case, otherwise
+     * {@link JHelp#ERROR}.
+     */
+    @Override
+    public int open() {
+        LOG.info("open");
+        try {
+            Class.forName(driver);
+        } catch (ClassNotFoundException e) {
+            errors.report("Jdbc driver " + driver + " not found! " + e.getMessage());
+            return JHelp.ERROR;
+        }
+        pool = new ConnectionPool(connectString, user, password, poolSize, poolTimeout);
+        try {
+            try (PooledConnection con = pool.acquire()) {
+                int applied = new SchemaMigrator().migrate(con.getConnection());
+                LOG.info(() -> "database schema version " + SchemaMigrator.VERSION
+                        + ", applied versions: " + applied);
+                if (trigramIndex) {
+                    initTermIndex(con);
+                }
+            }
+            if (trigramIndex) {
+                pool.setScripts(new String[]{selectDefinitionScript, selectTerminScript,
+                    deleteTerminScript, updateDefinitionScript, deleteDefinitionScript,
+                    countDefinitionScript, selectDefinitionPreviousScript,
+                    selectTerminByIdScript,
+                    selectDefinitionsByIdScript, selectDefinitionOfTermsScript,
+                    selectDefinitionOfTermsPreviousScript,
+                    selectDefinitionByGramsScript, selectDefinitionByGramsPreviousScript,
+                    insertTermGramScript, deleteTermGramsScript},
+                        new String[]{insertTerminScript, insertDefinitionScript});
+            } else {
+                pool.setScripts(new String[]{selectDefinitionScript, selectTerminScript,
+                    deleteTerminScript, updateDefinitionScript, deleteDefinitionScript,
+                    countDefinitionScript, selectDefinitionPreviousScript,
+                    selectTerminByIdScript,
+                    selectDefinitionsByIdScript, selectDefinitionOfTermsScript,
+                    selectDefinitionOfTermsPreviousScript,
+                    insertTermGramScript, deleteTermGramsScript},
+                        new String[]{insertTerminScript, insertDefinitionScript});
+            }
+            pool.prewarm(poolPrewarm);
+            if (groupSize > 1) {
+                coalescer = new WriteCoalescer(pool, new WriteCoalescer.Writer() {
+                    @Override
+                    public Data write(PooledConnection con, Data data) throws SQLException {
+                        return JdbcStorageEngine.this.write(con, data);
+                    }
+
+                    @Override
+                    public void committed() {
+                        JdbcStorageEngine.this.committed();
+                    }
+
+                    @Override
+                    public void rolledBack() {
+                        JdbcStorageEngine.this.rolledBack();
+                    }
+                }, groupSize, groupWindow);
+            }
+            LOG.info(() -> "connection pool " + pool);
+        } catch (SQLException | IOException ex) {
+            errors.report("Db connection error: " + ex.getMessage());
+            close();
+            return JHelp.ERROR;
+        }
+        return JHelp.READY;
+    }
+
+    /**
+     * The method waits for group committer, closes pool of connections and
+     * stops embedded database engine.
+     */
+    @Override
+    public void close() {
+        LOG.info("close");
+        if (coalescer != null) {
+            coalescer.close(EXIT_TIMEOUT);
+        }
+        if (pool != null) {
+            LOG.info("close connection pool");
+            pool.close();
+        }
+        if (embedded) {
+            shutdownEngine();
+        }
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * The method reads all terms with their definitions by one statement
+     * ordered by identificators of terms and definitions.
+     */
+    @Override
+    public int scan(Visitor visitor) {
+        try (PooledConnection con = pool.acquire()) {
+            PreparedStatement pstmt = con.prepare(selectAllDefinitionsScript);
+            try (ResultSet result = pstmt.executeQuery()) {
+                int termId = -1;
+                String term = null;
+                List<Item> definitions = new ArrayList<>();
+                while (result.next()) {
+                    int id = result.getInt("term_id");
+                    if (id != termId) {
+                        if (termId >= 0) {
+                            visitor.visit(termId, term,
+                                    definitions.toArray(new Item[definitions.size()]));
+                            definitions.clear();
+                        }
+                        termId = id;
+                        term = result.getString("term");
+                    }
+                    int defId = result.getInt("id");
+                    if (!result.wasNull()) {
+                        definitions.add(new Item(defId, result.getString("definition"),
+                                JHelp.ORIGIN));
+                    }
+                }
+                if (termId >= 0) {
+                    visitor.visit(termId, term,
+                            definitions.toArray(new Item[definitions.size()]));
+                }
+            }
+        } catch (SQLException ex) {
+            errors.report("SQL-scan error: " + ex.getMessage());
+            return JHelp.ERROR;
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * The method reads definitions by chunks of <code>ID_CHUNK</code>
+     * identificators with one query per chunk. Rows of a chunk are ordered
+     * by terms, so definitions of a term found in the chunk are passed at
+     * once.
+     */
+    @Override
+    public int fetch(int[] definitionIds, Visitor visitor) {
+        try (PooledConnection con = pool.acquire()) {
+            PreparedStatement pstmt = con.prepare(selectDefinitionsByIdScript);
+            for (int from = 0; from < definitionIds.length; from += ID_CHUNK) {
+                setIds(pstmt, definitionIds, from);
+                try (ResultSet result = pstmt.executeQuery()) {
+                    int termId = -1;
+                    String term = null;
+                    List<Item> definitions = new ArrayList<>();
+                    while (result.next()) {
+                        if (result.getInt("term_id") != termId) {
+                            if (termId >= 0) {
+                                visitor.visit(termId, term,
+                                        definitions.toArray(new Item[definitions.size()]));
+                            }
+                            termId = result.getInt("term_id");
+                            term = result.getString("term");
+                            definitions.clear();
+                        }
+                        definitions.add(new Item(result.getInt("id"),
+                                result.getString("definition"), JHelp.ORIGIN));
+                    }
+                    if (termId >= 0) {
+                        visitor.visit(termId, term,
+                                definitions.toArray(new Item[definitions.size()]));
+                    }
+                }
+            }
+        } catch (SQLException ex) {
+            errors.report("SQL-fetch error: " + ex.getMessage());
+            return JHelp.ERROR;
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * The method returns pool of database connections. The pool provides
+     * metrics: numbers of active and idle connections, total wait time and
+     * number of failed checkouts.
+     *
+     * @return connection pool or <code>null</code> if the object isn't
+     * connected.
+     */
+    public ConnectionPool getPool() {
+        return pool;
+    }
+
+    /**
+     * The method stops embedded Derby engine, so all databases are closed
+     * cleanly and don't need recovery on the next start. Derby reports
+     * successful shutdown by exception with <code>XJ015</code> state.
+     */
+    private void shutdownEngine() {
+        try {
+            DriverManager.getConnection(embeddedUrl + ";shutdown=true");
+        } catch (SQLException ex) {
+            if (ENGINE_SHUTDOWN_STATE.equals(ex.getSQLState())) {
+                LOG.info("embedded database engine is shut down");
+            } else {
+                errors.report("Embedded database shutdown error: " + ex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * The method returns group committer of changing requests.
+     *
+     * @return write coalescer or <code>null</code> if group commit is
+     * disabled.
+     */
+    public WriteCoalescer getWriteCoalescer() {
+        return coalescer;
+    }
+
+    /**
+     * The method puts <code>ID_CHUNK</code> parameters into the list of
+     * identificators of the script.
+     */
+    private static String idList(String script) {
+        if (script == null) {
+            return null;
+        }
+        return String.format(script, String.join(", ", Collections.nCopies(ID_CHUNK, "?")));
+    }
+
+    /**
+     * The method sets the chunk of identificators starting from the index
+     * to the first <code>ID_CHUNK</code> parameters. Unused parameters are
+     * set to zero, which isn't identificator of any row.
+     */
+    private static void setIds(PreparedStatement pstmt, int[] ids, int from)
+            throws SQLException {
+        for (int i = 0; i < ID_CHUNK; ++i) {
+            int k = from + i;
+            pstmt.setInt(i + 1, k < ids.length ? ids[k] : 0);
+        }
+    }
+
+    /**
+     * The method reads SQL statement from a script file of
+     * {@link JHelp#SCRIPT_PATH} directory.
+     *
+     * @param fileName - name of a script file
+     * @return text of the statement or <code>null</code> if the file can't
+     * be read
+     */
+    private String initScript(String fileName) {
+        try {
+            return new Configuration(JHelp.SCRIPT_PATH + fileName).getProperty("script");
+        } catch (FileNotFoundException fe) {
+            errors.report("Script file " + fileName + " doesn't exist\n" + fe.getMessage());
+        } catch (IOException ie) {
+            errors.report(ie.getMessage());
+        }
+        return null;
+    }
+}
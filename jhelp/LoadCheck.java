@@ -0,0 +1,178 @@
+/*
+ * LoadCheck.java
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class measures throughput of a running {@link Server}. It inserts
+ * definitions of test terms, then reads them by {@link JHelp#SELECT}
+ * requests from 1, 2, 4 and more connections at once and prints requests
+ * per second for every number of connections, so scaling of reading
+ * requests is seen. The last pass mixes {@link JHelp#UPDATE} requests into
+ * the reads. Inserted definitions are deleted at the end.
+ * <p>
+ * Usage:
+ * <code>java jhelp.LoadCheck host port [connections [seconds [terms]]]</code>,
+ * by default 8 connections, 5 seconds per pass and 1000 terms.
+ */
+public class LoadCheck {
+
+    private static final String PREFIX = "loadcheck-";
+    private static final int UPDATE_SHARE = 10;
+
+    private String host;
+    private int port;
+    private int terms;
+    private int[] definitions;
+
+    /**
+     * Creates a new instance of <code>LoadCheck</code>.
+     *
+     * @param host host of the server.
+     * @param port port of the server.
+     * @param terms number of test terms.
+     */
+    public LoadCheck(String host, int port, int terms) {
+        this.host = host;
+        this.port = port;
+        this.terms = terms;
+    }
+
+    /**
+     * Method runs the check.
+     *
+     * @param args host, port, maximum number of connections, seconds of a
+     * pass and number of terms.
+     * @throws Exception if the server isn't available.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.out.println("Usage: LoadCheck host port [connections [seconds [terms]]]");
+            return;
+        }
+        int connections = args.length > 2 ? Integer.valueOf(args[2]) : 8;
+        int seconds = args.length > 3 ? Integer.valueOf(args[3]) : 5;
+        LoadCheck check = new LoadCheck(args[0], Integer.valueOf(args[1]),
+                args.length > 4 ? Integer.valueOf(args[4]) : 1000);
+        check.insert();
+        try {
+            for (int n = 1; n <= connections; n <<= 1) {
+                check.report("select", n, check.run(n, seconds, 0), seconds);
+            }
+            check.report("select+update", connections,
+                    check.run(connections, seconds, UPDATE_SHARE), seconds);
+        } finally {
+            check.delete();
+        }
+    }
+
+    private void report(String name, int connections, long requests, int seconds) {
+        System.out.printf("%-14s connections: %3d, requests/s: %10.1f%n", name, connections,
+                (double) requests / seconds);
+    }
+
+    private void insert() throws IOException {
+        definitions = new int[terms];
+        try (Session session = new Session()) {
+            for (int i = 0; i < terms; ++i) {
+                Data data = session.send(new Data(JHelp.INSERT,
+                        new Item(PREFIX + i + "-"), new Item[]{
+                            new Item(0, "definition " + i, JHelp.INSERT)}));
+                if (data.getOperation() != JHelp.ORIGIN) {
+                    throw new IOException("Term " + i + " isn't inserted");
+                }
+                definitions[i] = data.getValue(0).getId();
+            }
+        }
+    }
+
+    private void delete() throws IOException {
+        try (Session session = new Session()) {
+            for (int i = 0; i < terms; ++i) {
+                session.send(new Data(JHelp.DELETE, new Item(PREFIX + i + "-"),
+                        new Item[]{new Item(definitions[i], "", JHelp.DELETE)}));
+            }
+        }
+    }
+
+    /**
+     * The method sends requests from the connections during the time.
+     *
+     * @param connections number of connections.
+     * @param seconds time of the pass.
+     * @param updates percent of {@link JHelp#UPDATE} requests.
+     * @return number of answered requests.
+     */
+    private long run(int connections, int seconds, final int updates)
+            throws InterruptedException {
+        final AtomicLong count = new AtomicLong();
+        final long end = System.nanoTime() + seconds * 1000000000L;
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < connections; ++t) {
+            final Random random = new Random(t);
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try (Session session = new Session()) {
+                        while (System.nanoTime() < end) {
+                            int i = random.nextInt(terms);
+                            if (random.nextInt(100) < updates) {
+                                session.send(new Data(JHelp.UPDATE,
+                                        new Item(PREFIX + i + "-"), new Item[]{
+                                            new Item(definitions[i], "definition " + i,
+                                                    JHelp.UPDATE)}));
+                            } else {
+                                session.send(new Data(JHelp.SELECT,
+                                        new Item(PREFIX + i + "-"), null));
+                            }
+                            count.incrementAndGet();
+                        }
+                    } catch (IOException ex) {
+                        System.out.println("LoadCheck: " + ex.getMessage());
+                    }
+                }
+            }, "load-" + t);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return count.get();
+    }
+
+    /**
+     * Connection with the server using binary protocol.
+     */
+    private class Session implements AutoCloseable {
+
+        private Socket socket;
+        private WireProtocol protocol;
+
+        Session() throws IOException {
+            socket = new Socket(host, port);
+            protocol = Handshake.open(socket, BinaryProtocol.NAME);
+        }
+
+        Data send(Data data) throws IOException {
+            protocol.write(data);
+            return protocol.read();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                protocol.write(new Data(JHelp.DISCONNECT, new Item(), null));
+            } finally {
+                socket.close();
+            }
+        }
+    }
+}
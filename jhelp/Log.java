@@ -0,0 +1,361 @@
+/*
+ * Log.java
+ */
+package jhelp;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * This class presents asynchronous log of the server. A thread which logs a
+ * message only checks the level, builds the record and puts it into a
+ * lock-free queue. One background thread takes records from the queue in
+ * batches, formats them and writes every batch to the log file with one
+ * flush. A message of disabled level costs one comparison; a message built
+ * by {@link java.util.function.Supplier} is built only for enabled level.
+ * If the queue is full new records are dropped and counted.
+ *
+ * <pre>
+ *     private static final Log LOG = Log.getLog(Server.class);
+ *     ...
+ *     LOG.debug(() -&gt; "request " + data.getOperation());
+ * </pre>
+ *
+ * @see jhelp.ErrorReporter
+ */
+public class Log {
+
+    /**
+     * Levels of log records in order of importance.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DEFAULT_BATCH = 256;
+    private static final long FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(200);
+
+    private static volatile int threshold = Level.INFO.ordinal();
+    private static final Queue<Record> queue = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger size = new AtomicInteger();
+    private static final AtomicLong dropped = new AtomicLong();
+    private static volatile int capacity = DEFAULT_CAPACITY;
+    private static volatile int batch = DEFAULT_BATCH;
+    private static Writer out = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+    private static volatile Thread writer;
+    private static volatile boolean parked;
+
+    private String name;
+
+    private Log(String name) {
+        this.name = name;
+    }
+
+    /**
+     * The method returns log for the class.
+     *
+     * @param owner class which writes the log.
+     * @return log object.
+     */
+    public static Log getLog(Class<?> owner) {
+        return new Log(owner.getSimpleName());
+    }
+
+    /**
+     * The method configures the log. Keys of the properties are:
+     * <code>logLevel</code> (DEBUG, INFO, WARN, ERROR or OFF),
+     * <code>logFile</code> (file appended by the log, console if empty),
+     * <code>logQueue</code> (maximum number of records waiting for writing)
+     * and <code>logBatch</code> (maximum number of records in one write).
+     *
+     * @param config configuration of the log.
+     * @throws IOException if the log file can't be opened.
+     */
+    public static synchronized void configure(Properties config) throws IOException {
+        threshold = Level.valueOf(config.getProperty("logLevel", "INFO").trim()
+                .toUpperCase()).ordinal();
+        capacity = Integer.valueOf(config.getProperty("logQueue",
+                String.valueOf(DEFAULT_CAPACITY)));
+        batch = Integer.valueOf(config.getProperty("logBatch",
+                String.valueOf(DEFAULT_BATCH)));
+        String file = config.getProperty("logFile", "").trim();
+        if (!file.isEmpty()) {
+            Writer fileWriter = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+            flush();
+            if (out instanceof BufferedWriter) {
+                out.close();
+            }
+            out = fileWriter;
+        }
+    }
+
+    /**
+     * @param level level of records.
+     * @return <code>true</code> if records of the level are written.
+     */
+    public boolean isEnabled(Level level) {
+        return level.ordinal() >= threshold;
+    }
+
+    /**
+     * The method writes debug message.
+     *
+     * @param message text of the message.
+     */
+    public void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    /**
+     * The method writes debug message built by the supplier. The supplier
+     * isn't called if the level is disabled.
+     *
+     * @param message supplier of the message text.
+     */
+    public void debug(Supplier<String> message) {
+        if (Level.DEBUG.ordinal() >= threshold) {
+            log(Level.DEBUG, message.get(), null);
+        }
+    }
+
+    /**
+     * The method writes information message.
+     *
+     * @param message text of the message.
+     */
+    public void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    /**
+     * The method writes information message built by the supplier. The
+     * supplier isn't called if the level is disabled.
+     *
+     * @param message supplier of the message text.
+     */
+    public void info(Supplier<String> message) {
+        if (Level.INFO.ordinal() >= threshold) {
+            log(Level.INFO, message.get(), null);
+        }
+    }
+
+    /**
+     * The method writes warning message.
+     *
+     * @param message text of the message.
+     */
+    public void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    /**
+     * The method writes warning message built by the supplier. The supplier
+     * isn't called if the level is disabled.
+     *
+     * @param message supplier of the message text.
+     */
+    public void warn(Supplier<String> message) {
+        if (Level.WARN.ordinal() >= threshold) {
+            log(Level.WARN, message.get(), null);
+        }
+    }
+
+    /**
+     * The method writes error message.
+     *
+     * @param message text of the message.
+     */
+    public void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    /**
+     * The method writes error message with stack trace of the cause.
+     *
+     * @param message text of the message.
+     * @param cause exception which causes the error.
+     */
+    public void error(String message, Throwable cause) {
+        log(Level.ERROR, message, cause);
+    }
+
+    private void log(Level level, String message, Throwable cause) {
+        if (level.ordinal() < threshold) {
+            return;
+        }
+        enqueue(new Record(System.currentTimeMillis(), level,
+                Thread.currentThread().getName(), name, message, cause));
+    }
+
+    /**
+     * The method writes already formatted line into the log regardless of
+     * the level, for example a message of {@link ErrorReporter}.
+     *
+     * @param line formatted line.
+     */
+    public static void write(String line) {
+        write(line, null);
+    }
+
+    /**
+     * The method writes already formatted line and stack trace of the cause
+     * into the log regardless of the level.
+     *
+     * @param line formatted line.
+     * @param cause exception or <code>null</code>.
+     */
+    public static void write(String line, Throwable cause) {
+        enqueue(new Record(0, null, null, null, line, cause));
+    }
+
+    private static void enqueue(Record record) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.add(record);
+        Thread thread = writer;
+        if (thread == null) {
+            thread = start();
+        }
+        if (parked) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static synchronized Thread start() {
+        if (writer == null) {
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            }, "log-writer");
+            thread.setDaemon(true);
+            thread.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, "log-flush"));
+            writer = thread;
+        }
+        return writer;
+    }
+
+    private static void drain() {
+        while (true) {
+            if (!flush()) {
+                parked = true;
+                if (queue.isEmpty()) {
+                    LockSupport.parkNanos(FLUSH_INTERVAL);
+                }
+                parked = false;
+            }
+        }
+    }
+
+    /**
+     * The method writes all queued records. The method is called by the
+     * background thread and by shutdown hook.
+     *
+     * @return <code>true</code> if any record was written.
+     */
+    static synchronized boolean flush() {
+        StringBuilder text = new StringBuilder();
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        boolean written = false;
+        Record record;
+        int n = 0;
+        while ((record = queue.poll()) != null) {
+            size.decrementAndGet();
+            record.format(text, format);
+            written = true;
+            if (++n == batch) {
+                write(text);
+                n = 0;
+            }
+        }
+        if (n > 0) {
+            write(text);
+        }
+        return written;
+    }
+
+    private static void write(StringBuilder text) {
+        try {
+            out.append(text);
+            out.flush();
+        } catch (IOException ex) {
+            System.err.print(text);
+        }
+        text.setLength(0);
+    }
+
+    /**
+     * @return number of records dropped because the queue was full.
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * @return number of records waiting for writing.
+     */
+    public static int getQueueDepth() {
+        return size.get();
+    }
+
+    private static class Record {
+
+        private long time;
+        private Level level;
+        private String thread;
+        private String name;
+        private String message;
+        private Throwable cause;
+
+        Record(long time, Level level, String thread, String name,
+                String message, Throwable cause) {
+            this.time = time;
+            this.level = level;
+            this.thread = thread;
+            this.name = name;
+            this.message = message;
+            this.cause = cause;
+        }
+
+        void format(StringBuilder text, SimpleDateFormat format) {
+            if (level != null) {
+                text.append(format.format(new Date(time))).append(' ')
+                        .append(level).append(" [").append(thread).append("] ")
+                        .append(name).append(": ");
+            }
+            text.append(message).append(System.lineSeparator());
+            if (cause != null) {
+                text.append('\t').append(cause).append(System.lineSeparator());
+                for (StackTraceElement element : cause.getStackTrace()) {
+                    text.append("\t\tat ").append(element).append(System.lineSeparator());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,776 @@
+/*
+ * LogStorageEngine.java
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * This class presents {@link StorageEngine} which appends every change of
+ * the dictionary to a record log in a local file. The file is mapped into
+ * memory by {@link MappedByteBuffer}: texts of definitions are read from the
+ * mapped file by offsets kept in an in-memory index, terms are kept in
+ * memory. On open the index is rebuilt by one pass over the log, a record
+ * torn by a crash and everything after it are ignored.
+ * <p>
+ * Every record is written as its length, CRC32 checksum and body. The body
+ * starts with the record type:
+ * <ul>
+ * <li><code>TERM</code> - identificator and text of a new term;</li>
+ * <li><code>DEFINITION</code> - identificator, term and text of a definition.
+ * A record with known identificator replaces text of the definition;</li>
+ * <li><code>DELETE_DEFINITION</code> - identificator of removed definition;</li>
+ * <li><code>DELETE_TERM</code> - identificator of removed term.</li>
+ * </ul>
+ * Replaced and removed records stay in the log. When their size exceeds
+ * <code>compactRatio</code> of the log and <code>compactMinBytes</code>, a
+ * background thread copies live records into a new file which then replaces
+ * the log. The log before its current end never changes, so live records
+ * are copied without locks: requests wait only while offsets of live
+ * records are collected and while records appended during compaction are
+ * moved to the new file.
+ * <p>
+ * Search semantics follow {@link MemoryStorageEngine}. Records are written
+ * into the mapped file, so they survive a crash of the server process; set
+ * <code>storeSync</code> to force every change to the disk.
+ *
+ * @see jhelp.ServerDb
+ */
+public class LogStorageEngine implements StorageEngine {
+
+    private static final Log LOG = Log.getLog(LogStorageEngine.class);
+    private static final int MAGIC = 0x4A484C47;
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER = 8;
+    private static final int RECORD_HEADER = 8;
+    private static final int MIN_CAPACITY = 1 << 20;
+    private static final byte TERM = 1;
+    private static final byte DEFINITION = 2;
+    private static final byte DELETE_DEFINITION = 3;
+    private static final byte DELETE_TERM = 4;
+
+    private IntMap<TermEntry> terms = new IntMap<>();
+    private IntMap<Definition> definitions = new IntMap<>();
+    private Map<String, TermEntry> byKey = new HashMap<>();
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ErrorReporter errors = ErrorReporter.getInstance();
+    private List<StorageEngine.Listener> listeners = new CopyOnWriteArrayList<>();
+    private AtomicBoolean compacting = new AtomicBoolean();
+    private Path file;
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int end;
+    private long garbage;
+    private int lastTermId;
+    private int lastDefinitionId;
+    private int pageSize;
+    private boolean sync;
+    private double compactRatio;
+    private long compactMinBytes;
+    private volatile long compactions;
+
+    /**
+     * Creates a new instance of <code>LogStorageEngine</code>.
+     *
+     * @param config parameters of <code>serverDb.cfg</code> file.
+     */
+    public LogStorageEngine(Properties config) {
+        pageSize = Integer.valueOf(config.getProperty("pageSize", "20"));
+        file = Paths.get(config.getProperty("storeFile", "jhelpdb.log"));
+        sync = Boolean.valueOf(config.getProperty("storeSync", "false"));
+        compactRatio = Double.valueOf(config.getProperty("compactRatio", "0.5"));
+        compactMinBytes = Long.valueOf(config.getProperty("compactMinBytes", "1048576"));
+    }
+
+    /**
+     * The method maps the log file, creating it if it doesn't exist, and
+     * rebuilds the index from its records.
+     *
+     * @return {@link JHelp#READY} in success case, otherwise
+     * {@link JHelp#ERROR} if the file can't be opened or has unknown format.
+     */
+    @Override
+    public int open() {
+        LOG.info("open");
+        lock.writeLock().lock();
+        try {
+            boolean created = !Files.exists(file) || Files.size(file) == 0;
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            map(Math.max(MIN_CAPACITY, (int) channel.size()));
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, FORMAT_VERSION);
+                end = HEADER;
+            } else if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Unknown format of " + file);
+            } else {
+                end = recover(buffer, HEADER);
+            }
+        } catch (IOException ex) {
+            errors.report("Log store " + file + " isn't opened: " + ex.getMessage(), ex);
+            closeChannel();
+            return JHelp.ERROR;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        LOG.info(() -> "log store " + file + " is opened, terms: " + terms.size()
+                + ", definitions: " + definitions.size() + ", bytes: " + end
+                + ", garbage: " + garbage);
+        return JHelp.READY;
+    }
+
+    /**
+     * The method forces the log to the disk and closes the file. Running
+     * compaction is abandoned.
+     */
+    @Override
+    public void close() {
+        LOG.info("close");
+        lock.writeLock().lock();
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            closeChannel();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                errors.report("Log store " + file + " isn't closed: " + ex.getMessage(), ex);
+            }
+        }
+        channel = null;
+        buffer = null;
+    }
+
+    @Override
+    public Data select(Data data) {
+        String term = data.getKey().getItem();
+        String pattern = Terms.normalize(term);
+        lock.readLock().lock();
+        try {
+            return select(data, byKey.values(), pattern);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Data select(Data data, int[] termIds) {
+        lock.readLock().lock();
+        try {
+            List<TermEntry> selected = new ArrayList<>(termIds.length);
+            for (int id : termIds) {
+                TermEntry term = terms.get(id);
+                if (term != null) {
+                    selected.add(term);
+                }
+            }
+            return select(data, selected, "");
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The method reads one page of definitions of the terms containing the
+     * pattern. The caller holds the read lock.
+     */
+    private Data select(Data data, Collection<TermEntry> candidates, String pattern) {
+        boolean backward = data.getOperation() == JHelp.PREVIOUS;
+        int cursor = data.getOperation() == JHelp.SELECT ? 0 : data.getCursor();
+        List<Item> page = new ArrayList<>();
+        int termId = -1;
+        int[] ids = TermEntry.matches(candidates, pattern, cursor, backward);
+        boolean more = ids.length > pageSize;
+        int from = backward ? Math.max(0, ids.length - pageSize) : 0;
+        int to = backward ? ids.length : Math.min(ids.length, pageSize);
+        for (int i = from; i < to; ++i) {
+            Definition definition = definitions.get(ids[i]);
+            page.add(new Item(ids[i], readText(definition), JHelp.ORIGIN));
+            termId = definition.termId;
+        }
+        data.setValues(page.toArray(new Item[page.size()]));
+        data.setCursor(0);
+        if (!page.isEmpty()) {
+            if (more || backward) {
+                data.setCursor(page.get(page.size() - 1).getId());
+            }
+            data.getKey().setId(termId);
+            data.setOperation(JHelp.ORIGIN);
+        }
+        return data;
+    }
+
+    @Override
+    public Data insert(Data data) {
+        String text = data.getKey().getItem() == null ? "" : data.getKey().getItem();
+        String key = Terms.normalize(text);
+        StorageEvents events = new StorageEvents();
+        lock.writeLock().lock();
+        try {
+            TermEntry term = byKey.get(key);
+            for (Item item : data.getValues()) {
+                if (item.getState() != JHelp.INSERT) {
+                    continue;
+                }
+                if (term == null) {
+                    int termId = lastTermId + 1;
+                    term = addTerm(append(termRecord(termId, text)), termId, text);
+                    events.termAdded(termId, text);
+                }
+                int id = lastDefinitionId + 1;
+                int offset = append(definitionRecord(id, term.id, item.getItem()));
+                putDefinition(offset, id, term.id);
+                events.definitionAdded(id, item.getItem());
+                data.getKey().setId(term.id);
+                item.setId(id);
+                item.setState(JHelp.ORIGIN);
+                data.setOperation(JHelp.ORIGIN);
+            }
+            if (term != null && data.getOperation() == JHelp.ORIGIN) {
+                events.termChanged(term.id, term.text);
+            }
+            flush();
+        } catch (IOException ex) {
+            errors.report("Log store write error: " + ex.getMessage(), ex);
+            data.setOperation(JHelp.ERROR);
+        } finally {
+            lock.writeLock().unlock();
+            events.fire(listeners);
+        }
+        compactIfNeeded();
+        return data;
+    }
+
+    @Override
+    public Data update(Data data) {
+        boolean updated = false;
+        StorageEvents events = new StorageEvents();
+        lock.writeLock().lock();
+        try {
+            for (Item item : data.getValues()) {
+                if (item.getState() != JHelp.UPDATE) {
+                    continue;
+                }
+                Definition definition = definitions.get(item.getId());
+                if (definition != null) {
+                    int offset = append(definitionRecord(item.getId(), definition.termId,
+                            item.getItem()));
+                    putDefinition(offset, item.getId(), definition.termId);
+                    events.definitionAdded(item.getId(), item.getItem());
+                    updated = true;
+                }
+            }
+            flush();
+        } catch (IOException ex) {
+            errors.report("Log store write error: " + ex.getMessage(), ex);
+            data.setOperation(JHelp.ERROR);
+            return data;
+        } finally {
+            lock.writeLock().unlock();
+            events.fire(listeners);
+        }
+        if (updated) {
+            data.setOperation(JHelp.ORIGIN);
+            for (Item item : data.getValues()) {
+                item.setState(JHelp.ORIGIN);
+            }
+        }
+        compactIfNeeded();
+        return data;
+    }
+
+    @Override
+    public Data delete(Data data) {
+        boolean deleted = false;
+        StorageEvents events = new StorageEvents();
+        lock.writeLock().lock();
+        try {
+            for (Item item : data.getValues()) {
+                if (item.getState() != JHelp.DELETE || !definitions.containsKey(item.getId())) {
+                    continue;
+                }
+                int offset = append(deleteRecord(DELETE_DEFINITION, item.getId()));
+                TermEntry term = removeDefinition(offset, item.getId());
+                events.definitionRemoved(item.getId());
+                if (term.size == 0) {
+                    removeTerm(append(deleteRecord(DELETE_TERM, term.id)), term.id);
+                    events.termRemoved(term.id, term.text);
+                }
+                item.setState(JHelp.ORIGIN);
+                deleted = true;
+            }
+            flush();
+        } catch (IOException ex) {
+            errors.report("Log store write error: " + ex.getMessage(), ex);
+            data.setOperation(JHelp.ERROR);
+            return data;
+        } finally {
+            lock.writeLock().unlock();
+            events.fire(listeners);
+        }
+        if (deleted) {
+            data.setOperation(JHelp.ORIGIN);
+        }
+        compactIfNeeded();
+        return data;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * The method copies terms under the read lock and passes them to the
+     * visitor after the lock is released, so the visitor may call the
+     * engine.
+     */
+    @Override
+    public int scan(Visitor visitor) {
+        TermEntry[] copy;
+        Item[][] items;
+        lock.readLock().lock();
+        try {
+            copy = TermEntry.sorted(byKey.values());
+            items = new Item[copy.length][];
+            for (int i = 0; i < copy.length; ++i) {
+                TermEntry term = copy[i];
+                items[i] = new Item[term.size];
+                for (int j = 0; j < term.size; ++j) {
+                    int id = term.definitions[j];
+                    items[i][j] = new Item(id, readText(definitions.get(id)), JHelp.ORIGIN);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int i = 0; i < copy.length; ++i) {
+            visitor.visit(copy[i].id, copy[i].text, items[i]);
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * The method copies definitions under the read lock like
+     * {@link #scan(Visitor)}, every definition is passed by its own call.
+     */
+    @Override
+    public int fetch(int[] definitionIds, Visitor visitor) {
+        List<TermEntry> owners = new ArrayList<>(definitionIds.length);
+        List<Item> items = new ArrayList<>(definitionIds.length);
+        lock.readLock().lock();
+        try {
+            for (int id : definitionIds) {
+                Definition definition = definitions.get(id);
+                if (definition != null) {
+                    owners.add(terms.get(definition.termId));
+                    items.add(new Item(id, readText(definition), JHelp.ORIGIN));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int i = 0; i < items.size(); ++i) {
+            visitor.visit(owners.get(i).id, owners.get(i).text, new Item[]{items.get(i)});
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * @return size of the log in bytes.
+     */
+    public long getSize() {
+        lock.readLock().lock();
+        try {
+            return end;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return size of replaced and removed records in bytes.
+     */
+    public long getGarbage() {
+        lock.readLock().lock();
+        try {
+            return garbage;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return number of finished compactions.
+     */
+    public long getCompactions() {
+        return compactions;
+    }
+
+    /**
+     * The method reads records from the offset and applies them to the
+     * index.
+     *
+     * @return offset after the last valid record.
+     */
+    private int recover(ByteBuffer log, int offset) {
+        int limit = log.capacity();
+        CRC32 crc = new CRC32();
+        while (offset + RECORD_HEADER <= limit) {
+            int length = log.getInt(offset);
+            if (length <= 0 || length > limit - offset - RECORD_HEADER) {
+                break;
+            }
+            ByteBuffer body = slice(log, offset + RECORD_HEADER, length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if ((int) crc.getValue() != log.getInt(offset + 4)) {
+                LOG.warn("log store " + file + " has a broken record at " + offset
+                        + ", the rest of the log is ignored");
+                break;
+            }
+            apply(offset, body);
+            offset += RECORD_HEADER + length;
+        }
+        return offset;
+    }
+
+    private void apply(int offset, ByteBuffer body) {
+        byte type = body.get();
+        switch (type) {
+            case TERM: {
+                int id = body.getInt();
+                addTerm(offset, id, readString(body));
+                break;
+            }
+            case DEFINITION: {
+                int id = body.getInt();
+                putDefinition(offset, id, body.getInt());
+                break;
+            }
+            case DELETE_DEFINITION:
+                removeDefinition(offset, body.getInt());
+                break;
+            case DELETE_TERM:
+                removeTerm(offset, body.getInt());
+                break;
+            default:
+                LOG.warn("log store " + file + " has unknown record " + type + " at " + offset);
+        }
+    }
+
+    private TermEntry addTerm(int offset, int id, String text) {
+        TermEntry term = new TermEntry(id, text);
+        terms.put(id, term);
+        byKey.put(Terms.normalize(text), term);
+        lastTermId = Math.max(lastTermId, id);
+        return term;
+    }
+
+    private void putDefinition(int offset, int id, int termId) {
+        Definition definition = definitions.get(id);
+        if (definition != null) {
+            garbage += recordSize(definition.offset);
+            definition.offset = offset;
+            return;
+        }
+        definitions.put(id, new Definition(termId, offset));
+        terms.get(termId).add(id);
+        lastDefinitionId = Math.max(lastDefinitionId, id);
+    }
+
+    private TermEntry removeDefinition(int offset, int id) {
+        Definition definition = definitions.remove(id);
+        garbage += recordSize(definition.offset) + recordSize(offset);
+        TermEntry term = terms.get(definition.termId);
+        term.remove(id);
+        return term;
+    }
+
+    private void removeTerm(int offset, int id) {
+        TermEntry term = terms.remove(id);
+        byKey.remove(Terms.normalize(term.text));
+        garbage += termRecord(id, term.text).length + recordSize(offset);
+    }
+
+    private int recordSize(int offset) {
+        return RECORD_HEADER + buffer.getInt(offset);
+    }
+
+    /**
+     * The method reads text of the definition from the mapped log. Absolute
+     * reads don't change state of the buffer, so many threads may read at
+     * once.
+     */
+    private String readText(Definition definition) {
+        int offset = definition.offset + RECORD_HEADER + 9;
+        byte[] bytes = new byte[buffer.getInt(offset)];
+        slice(buffer, offset + 4, bytes.length).get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The method returns a view of bytes of the buffer from the offset. The
+     * view is cut from a duplicate, so the position and the limit of the
+     * shared buffer don't change.
+     */
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice();
+    }
+
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getInt()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static byte[] termRecord(int id, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(9 + bytes.length);
+        body.put(TERM).putInt(id).putInt(bytes.length).put(bytes);
+        return record(body);
+    }
+
+    private static byte[] definitionRecord(int id, int termId, String text) {
+        byte[] bytes = text == null ? new byte[0] : text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer body = ByteBuffer.allocate(13 + bytes.length);
+        body.put(DEFINITION).putInt(id).putInt(termId).putInt(bytes.length).put(bytes);
+        return record(body);
+    }
+
+    private static byte[] deleteRecord(byte type, int id) {
+        ByteBuffer body = ByteBuffer.allocate(5);
+        body.put(type).putInt(id);
+        return record(body);
+    }
+
+    private static byte[] record(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.array());
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + body.capacity());
+        record.putInt(body.capacity()).putInt((int) crc.getValue()).put(body.array());
+        return record.array();
+    }
+
+    /**
+     * The method appends the record to the log, the mapping grows if the
+     * record doesn't fit. The caller holds the write lock.
+     *
+     * @return offset of the record.
+     */
+    private int append(byte[] record) throws IOException {
+        if (channel == null) {
+            throw new IOException("Log store " + file + " is closed");
+        }
+        if ((long) end + record.length > buffer.capacity()) {
+            long capacity = Math.max((long) buffer.capacity() * 2, (long) end + record.length);
+            if (capacity > Integer.MAX_VALUE) {
+                throw new IOException("Log store " + file + " is full");
+            }
+            map((int) capacity);
+        }
+        int offset = end;
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.put(record);
+        end += record.length;
+        return offset;
+    }
+
+    private void flush() {
+        if (sync) {
+            buffer.force();
+        }
+    }
+
+    private void map(int capacity) throws IOException {
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private void compactIfNeeded() {
+        boolean needed;
+        lock.readLock().lock();
+        try {
+            needed = channel != null && garbage >= compactMinBytes
+                    && garbage > compactRatio * (end - HEADER);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (needed && compacting.compareAndSet(false, true)) {
+            Thread compactor = new Thread(this::compact, "log-compactor");
+            compactor.setDaemon(true);
+            compactor.start();
+        }
+    }
+
+    /**
+     * The method writes live records into a new file. Under the read lock
+     * the end of the log, its mapping and offsets of live records are
+     * captured. The captured records are copied without locks, as the log
+     * before the captured end isn't changed by appending. Then under the
+     * write lock records appended meanwhile are moved to the new file, the
+     * new file replaces the log and offsets of the index are switched to it.
+     */
+    private void compact() {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        IntMap<Integer> offsets = new IntMap<>();
+        FileChannel target = null;
+        try {
+            int copied;
+            long collected;
+            ByteBuffer source;
+            List<LiveTerm> live = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                if (channel == null) {
+                    return;
+                }
+                copied = end;
+                collected = garbage;
+                source = buffer;
+                for (TermEntry term : TermEntry.sorted(byKey.values())) {
+                    int[] ids = new int[term.size];
+                    int[] records = new int[term.size];
+                    for (int i = 0; i < term.size; ++i) {
+                        ids[i] = term.definitions[i];
+                        records[i] = definitions.get(ids[i]).offset;
+                    }
+                    live.add(new LiveTerm(term.id, term.text, ids, records));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            target = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+            int position = write(target, header, 0);
+            for (LiveTerm term : live) {
+                position = write(target, ByteBuffer.wrap(termRecord(term.id, term.text)),
+                        position);
+                for (int i = 0; i < term.definitions.length; ++i) {
+                    int offset = term.offsets[i];
+                    offsets.put(term.definitions[i], position);
+                    position = write(target, slice(source, offset,
+                            RECORD_HEADER + source.getInt(offset)), position);
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                if (channel == null) {
+                    return;
+                }
+                int tail = position;
+                position = write(target, slice(buffer, copied, end - copied), position);
+                for (int offset = copied; offset < end; offset += recordSize(offset)) {
+                    ByteBuffer body = slice(buffer, offset + RECORD_HEADER, buffer.getInt(offset));
+                    if (body.get() == DEFINITION) {
+                        offsets.put(body.getInt(), tail + offset - copied);
+                    }
+                }
+                definitions.forEach((id, definition) -> definition.offset = offsets.get(id));
+                target.force(true);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                long before = end;
+                channel.close();
+                channel = target;
+                target = null;
+                map(Math.max(MIN_CAPACITY, position));
+                end = position;
+                garbage -= collected;
+                ++compactions;
+                LOG.info(() -> "log store " + file + " is compacted from " + before
+                        + " to " + end + " bytes");
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } catch (IOException ex) {
+            errors.report("Log store compaction error: " + ex.getMessage(), ex);
+        } finally {
+            if (target != null) {
+                try {
+                    target.close();
+                    Files.deleteIfExists(temp);
+                } catch (IOException ex) {
+                    LOG.warn("temporary file " + temp + " isn't removed: " + ex.getMessage());
+                }
+            }
+            compacting.set(false);
+        }
+    }
+
+    private static int write(FileChannel target, ByteBuffer source, int position)
+            throws IOException {
+        int length = source.remaining();
+        while (source.hasRemaining()) {
+            target.write(source, position + length - source.remaining());
+        }
+        return position + length;
+    }
+
+    /**
+     * Live term and offsets of its definitions captured for compaction.
+     */
+    private static class LiveTerm {
+
+        private final int id;
+        private final String text;
+        private final int[] definitions;
+        private final int[] offsets;
+
+        LiveTerm(int id, String text, int[] definitions, int[] offsets) {
+            this.id = id;
+            this.text = text;
+            this.definitions = definitions;
+            this.offsets = offsets;
+        }
+    }
+
+    /**
+     * Position of the last record of a definition in the log.
+     */
+    private static class Definition {
+
+        private final int termId;
+        private int offset;
+
+        Definition(int termId, int offset) {
+            this.termId = termId;
+            this.offset = offset;
+        }
+    }
+}
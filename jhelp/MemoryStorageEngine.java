@@ -0,0 +1,463 @@
+/*
+ * MemoryStorageEngine.java
+ */
+package jhelp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class presents {@link StorageEngine} which keeps terms and
+ * definitions in memory of the server process. Terms and definitions are
+ * kept in {@link IntMap} objects by their identificators, terms are also
+ * found by normalized text. Reading requests run concurrently under the read
+ * lock, changing requests take the write lock.
+ * <p>
+ * Search semantics follow {@link JdbcStorageEngine}: definitions of all
+ * terms whose normalized text matches <code>like '%term%'</code> predicate
+ * for the normalized requested term are paged in order of their
+ * identificators, so <code>%</code> and <code>_</code> are wildcards. New
+ * definitions are added to the term with the same normalized text, see
+ * {@link Terms#normalize(String)}.
+ * <p>
+ * If <code>snapshotFile</code> parameter is set, the storage is loaded from
+ * the file on open, saved every <code>snapshotInterval</code> seconds if it
+ * was changed, and saved on close. A snapshot is written to a temporary file
+ * which then replaces the previous snapshot, so a crash during save keeps
+ * the previous snapshot intact.
+ *
+ * @see jhelp.ServerDb
+ */
+public class MemoryStorageEngine implements StorageEngine {
+
+    private static final Log LOG = Log.getLog(MemoryStorageEngine.class);
+    private static final int MAGIC = 0x4A48534E;
+    private static final int FORMAT_VERSION = 1;
+
+    private IntMap<TermEntry> terms = new IntMap<>();
+    private IntMap<Definition> definitions = new IntMap<>();
+    private Map<String, TermEntry> byKey = new HashMap<>();
+    private ReadWriteLock lock = new ReentrantReadWriteLock();
+    private ErrorReporter errors = ErrorReporter.getInstance();
+    private List<StorageEngine.Listener> listeners = new CopyOnWriteArrayList<>();
+    private int lastTermId;
+    private int lastDefinitionId;
+    private long version;
+    private long savedVersion;
+    private int pageSize;
+    private Path snapshot;
+    private long snapshotInterval;
+    private Timer timer;
+
+    /**
+     * Creates a new empty instance of <code>MemoryStorageEngine</code>.
+     *
+     * @param config parameters of <code>serverDb.cfg</code> file.
+     */
+    public MemoryStorageEngine(Properties config) {
+        pageSize = Integer.valueOf(config.getProperty("pageSize", "20"));
+        String file = config.getProperty("snapshotFile", "").trim();
+        snapshot = file.isEmpty() ? null : Paths.get(file);
+        snapshotInterval = TimeUnit.SECONDS.toMillis(
+                Long.valueOf(config.getProperty("snapshotInterval", "60")));
+    }
+
+    /**
+     * The method loads the snapshot if it exists and starts periodic save of
+     * snapshots.
+     *
+     * @return {@link JHelp#READY} in success case, otherwise
+     * {@link JHelp#ERROR} if the snapshot can't be read.
+     */
+    @Override
+    public int open() {
+        LOG.info("open");
+        if (snapshot == null) {
+            return JHelp.READY;
+        }
+        if (Files.exists(snapshot)) {
+            try {
+                load();
+            } catch (IOException ex) {
+                errors.report("Snapshot " + snapshot + " isn't loaded: " + ex.getMessage(), ex);
+                return JHelp.ERROR;
+            }
+            LOG.info(() -> "snapshot " + snapshot + " is loaded, terms: " + terms.size()
+                    + ", definitions: " + definitions.size());
+        }
+        if (snapshotInterval > 0) {
+            timer = new Timer("memory-snapshot", true);
+            timer.schedule(new TimerTask() {
+                @Override
+                public void run() {
+                    save();
+                }
+            }, snapshotInterval, snapshotInterval);
+        }
+        return JHelp.READY;
+    }
+
+    /**
+     * The method stops periodic save and saves the last snapshot.
+     */
+    @Override
+    public void close() {
+        LOG.info("close");
+        if (timer != null) {
+            timer.cancel();
+        }
+        if (snapshot != null) {
+            save();
+        }
+    }
+
+    @Override
+    public Data select(Data data) {
+        String term = data.getKey().getItem();
+        String pattern = Terms.normalize(term);
+        lock.readLock().lock();
+        try {
+            return select(data, byKey.values(), pattern);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Data select(Data data, int[] termIds) {
+        lock.readLock().lock();
+        try {
+            List<TermEntry> selected = new ArrayList<>(termIds.length);
+            for (int id : termIds) {
+                TermEntry term = terms.get(id);
+                if (term != null) {
+                    selected.add(term);
+                }
+            }
+            return select(data, selected, "");
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The method reads one page of definitions of the terms containing the
+     * pattern. The caller holds the read lock.
+     */
+    private Data select(Data data, Collection<TermEntry> candidates, String pattern) {
+        boolean backward = data.getOperation() == JHelp.PREVIOUS;
+        int cursor = data.getOperation() == JHelp.SELECT ? 0 : data.getCursor();
+        List<Item> page = new ArrayList<>();
+        int termId = -1;
+        int[] ids = TermEntry.matches(candidates, pattern, cursor, backward);
+        boolean more = ids.length > pageSize;
+        int from = backward ? Math.max(0, ids.length - pageSize) : 0;
+        int to = backward ? ids.length : Math.min(ids.length, pageSize);
+        for (int i = from; i < to; ++i) {
+            Definition definition = definitions.get(ids[i]);
+            page.add(new Item(ids[i], definition.text, JHelp.ORIGIN));
+            termId = definition.termId;
+        }
+        data.setValues(page.toArray(new Item[page.size()]));
+        data.setCursor(0);
+        if (!page.isEmpty()) {
+            if (more || backward) {
+                data.setCursor(page.get(page.size() - 1).getId());
+            }
+            data.getKey().setId(termId);
+            data.setOperation(JHelp.ORIGIN);
+        }
+        return data;
+    }
+
+    @Override
+    public Data insert(Data data) {
+        String text = data.getKey().getItem();
+        String key = Terms.normalize(text);
+        StorageEvents events = new StorageEvents();
+        lock.writeLock().lock();
+        try {
+            TermEntry term = byKey.get(key);
+            for (Item item : data.getValues()) {
+                if (item.getState() != JHelp.INSERT) {
+                    continue;
+                }
+                if (term == null) {
+                    term = new TermEntry(++lastTermId, text == null ? "" : text);
+                    terms.put(term.id, term);
+                    byKey.put(key, term);
+                    events.termAdded(term.id, term.text);
+                }
+                Definition definition = new Definition(++lastDefinitionId, term.id,
+                        item.getItem());
+                definitions.put(definition.id, definition);
+                term.add(definition.id);
+                events.definitionAdded(definition.id, definition.text);
+                ++version;
+                data.getKey().setId(term.id);
+                item.setId(definition.id);
+                item.setState(JHelp.ORIGIN);
+                data.setOperation(JHelp.ORIGIN);
+            }
+            if (term != null && data.getOperation() == JHelp.ORIGIN) {
+                events.termChanged(term.id, term.text);
+            }
+        } finally {
+            lock.writeLock().unlock();
+            events.fire(listeners);
+        }
+        return data;
+    }
+
+    @Override
+    public Data update(Data data) {
+        boolean updated = false;
+        StorageEvents events = new StorageEvents();
+        lock.writeLock().lock();
+        try {
+            for (Item item : data.getValues()) {
+                if (item.getState() != JHelp.UPDATE) {
+                    continue;
+                }
+                Definition definition = definitions.get(item.getId());
+                if (definition != null) {
+                    definition.text = item.getItem();
+                    events.definitionAdded(definition.id, definition.text);
+                    ++version;
+                    updated = true;
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+            events.fire(listeners);
+        }
+        if (updated) {
+            data.setOperation(JHelp.ORIGIN);
+            for (Item item : data.getValues()) {
+                item.setState(JHelp.ORIGIN);
+            }
+        }
+        return data;
+    }
+
+    @Override
+    public Data delete(Data data) {
+        boolean deleted = false;
+        StorageEvents events = new StorageEvents();
+        lock.writeLock().lock();
+        try {
+            for (Item item : data.getValues()) {
+                if (item.getState() != JHelp.DELETE) {
+                    continue;
+                }
+                Definition definition = definitions.remove(item.getId());
+                if (definition == null) {
+                    continue;
+                }
+                TermEntry term = terms.get(definition.termId);
+                term.remove(definition.id);
+                events.definitionRemoved(definition.id);
+                if (term.size == 0) {
+                    terms.remove(term.id);
+                    byKey.remove(Terms.normalize(term.text));
+                    events.termRemoved(term.id, term.text);
+                }
+                ++version;
+                item.setState(JHelp.ORIGIN);
+                deleted = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+            events.fire(listeners);
+        }
+        if (deleted) {
+            data.setOperation(JHelp.ORIGIN);
+        }
+        return data;
+    }
+
+    @Override
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * The method copies terms under the read lock and passes them to the
+     * visitor after the lock is released, so the visitor may call the
+     * engine.
+     */
+    @Override
+    public int scan(Visitor visitor) {
+        TermEntry[] copy;
+        Item[][] items;
+        lock.readLock().lock();
+        try {
+            copy = TermEntry.sorted(byKey.values());
+            items = new Item[copy.length][];
+            for (int i = 0; i < copy.length; ++i) {
+                TermEntry term = copy[i];
+                items[i] = new Item[term.size];
+                for (int j = 0; j < term.size; ++j) {
+                    Definition definition = definitions.get(term.definitions[j]);
+                    items[i][j] = new Item(definition.id, definition.text, JHelp.ORIGIN);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int i = 0; i < copy.length; ++i) {
+            visitor.visit(copy[i].id, copy[i].text, items[i]);
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * The method copies definitions under the read lock like
+     * {@link #scan(Visitor)}, every definition is passed by its own call.
+     */
+    @Override
+    public int fetch(int[] definitionIds, Visitor visitor) {
+        List<TermEntry> owners = new ArrayList<>(definitionIds.length);
+        List<Item> items = new ArrayList<>(definitionIds.length);
+        lock.readLock().lock();
+        try {
+            for (int id : definitionIds) {
+                Definition definition = definitions.get(id);
+                if (definition != null) {
+                    owners.add(terms.get(definition.termId));
+                    items.add(new Item(id, definition.text, JHelp.ORIGIN));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        for (int i = 0; i < items.size(); ++i) {
+            visitor.visit(owners.get(i).id, owners.get(i).text, new Item[]{items.get(i)});
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * The method writes the snapshot if the storage was changed since the
+     * last save. Changing requests wait while the snapshot is written.
+     */
+    private synchronized void save() {
+        Path temp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        long saving;
+        lock.readLock().lock();
+        try {
+            if (version == savedVersion) {
+                return;
+            }
+            saving = version;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(lastTermId);
+                out.writeInt(lastDefinitionId);
+                TermEntry[] sorted = TermEntry.sorted(byKey.values());
+                out.writeInt(sorted.length);
+                for (TermEntry term : sorted) {
+                    out.writeInt(term.id);
+                    writeString(out, term.text);
+                    out.writeInt(term.size);
+                    for (int i = 0; i < term.size; ++i) {
+                        Definition definition = definitions.get(term.definitions[i]);
+                        out.writeInt(definition.id);
+                        writeString(out, definition.text);
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            errors.report("Snapshot " + snapshot + " isn't saved: " + ex.getMessage(), ex);
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            savedVersion = saving;
+            LOG.debug(() -> "snapshot " + snapshot + " is saved");
+        } catch (IOException ex) {
+            errors.report("Snapshot " + snapshot + " isn't saved: " + ex.getMessage(), ex);
+        }
+    }
+
+    private void load() throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown snapshot format");
+            }
+            lock.writeLock().lock();
+            try {
+                lastTermId = in.readInt();
+                lastDefinitionId = in.readInt();
+                int termCount = in.readInt();
+                for (int i = 0; i < termCount; ++i) {
+                    TermEntry term = new TermEntry(in.readInt(), readString(in));
+                    int definitionCount = in.readInt();
+                    for (int j = 0; j < definitionCount; ++j) {
+                        Definition definition = new Definition(in.readInt(), term.id,
+                                readString(in));
+                        definitions.put(definition.id, definition);
+                        term.add(definition.id);
+                    }
+                    terms.put(term.id, term);
+                    byKey.put(Terms.normalize(term.text), term);
+                }
+                version = 0;
+                savedVersion = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static class Definition {
+
+        private final int id;
+        private final int termId;
+        private String text;
+
+        Definition(int id, int termId, String text) {
+            this.id = id;
+            this.termId = termId;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Metrics.java
+ */
+package jhelp;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * This class collects latencies and counters of requests served by
+ * {@link jhelp.Server}. Metrics are kept separately for every operation in
+ * {@link jhelp.OperationMetrics} objects. Every request passes stages:
+ * <ul>
+ * <li>{@link Stage#DECODE} - decoding of the request frame (only
+ * {@link jhelp.NioServer} decodes frames apart from reading);</li>
+ * <li>{@link Stage#QUEUE} - waiting in the queue of request executor;</li>
+ * <li>{@link Stage#DB} - work of {@link jhelp.ServerDb} object or of an
+ * in-memory index of the server;</li>
+ * <li>{@link Stage#ENCODE} - encoding of the response (writing to the
+ * socket for blocking connections).</li>
+ * </ul>
+ * Metrics are exported by {@link jhelp.MetricsServer} in Prometheus text
+ * format and as MXBeans of <code>jhelp:type=Operation</code> type.
+ *
+ * @see jhelp.LatencyHistogram
+ */
+public class Metrics {
+
+    /**
+     * Stages of a request.
+     */
+    public enum Stage {
+        DECODE, QUEUE, DB, ENCODE;
+
+        /**
+         * @return name of the stage in exported metrics.
+         */
+        public String getLabel() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Log LOG = Log.getLog(Metrics.class);
+    private static final String DOMAIN = "jhelp";
+    private static final int[] OPERATIONS = {JHelp.SELECT, JHelp.NEXT,
+        JHelp.PREVIOUS, JHelp.INSERT, JHelp.UPDATE, JHelp.DELETE, JHelp.COMPLETE,
+        JHelp.SEARCH, JHelp.FUZZY};
+    private static final String[] NAMES = {"select", "next", "previous",
+        "insert", "update", "delete", "complete", "search", "fuzzy"};
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private OperationMetrics[] operations = new OperationMetrics[OPERATIONS.length + 1];
+
+    /**
+     * Creates a new instance of <code>Metrics</code>.
+     */
+    public Metrics() {
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            operations[i] = new OperationMetrics(NAMES[i]);
+        }
+        operations[OPERATIONS.length] = new OperationMetrics("other");
+    }
+
+    /**
+     * The method returns metrics of the operation.
+     *
+     * @param operation code of the operation.
+     * @return metrics of the operation. Unknown operations share metrics
+     * named <code>other</code>.
+     */
+    public OperationMetrics forOperation(int operation) {
+        for (int i = 0; i < OPERATIONS.length; ++i) {
+            if (OPERATIONS[i] == operation) {
+                return operations[i];
+            }
+        }
+        return operations[OPERATIONS.length];
+    }
+
+    /**
+     * The method records latency of the stage of the operation.
+     *
+     * @param operation code of the operation.
+     * @param stage stage of the request.
+     * @param start value of {@link System#nanoTime()} at start of the stage.
+     */
+    public void record(int operation, Stage stage, long start) {
+        forOperation(operation).record(stage, System.nanoTime() - start);
+    }
+
+    /**
+     * The method registers MXBeans of all operations in platform MBean
+     * server.
+     */
+    public void registerMBeans() {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics op : operations) {
+            try {
+                ObjectName name = objectName(op);
+                if (!mbs.isRegistered(name)) {
+                    mbs.registerMBean(op, name);
+                }
+            } catch (JMException ex) {
+                LOG.error("MBean registration error", ex);
+            }
+        }
+    }
+
+    /**
+     * The method removes MXBeans of all operations from platform MBean
+     * server.
+     */
+    public void unregisterMBeans() {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        for (OperationMetrics op : operations) {
+            try {
+                ObjectName name = objectName(op);
+                if (mbs.isRegistered(name)) {
+                    mbs.unregisterMBean(name);
+                }
+            } catch (JMException ex) {
+                LOG.error("MBean unregistration error", ex);
+            }
+        }
+    }
+
+    private ObjectName objectName(OperationMetrics op) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Operation,name=" + op.getName());
+    }
+
+    /**
+     * The method appends metrics of all operations in Prometheus text format.
+     *
+     * @param text target of the metrics.
+     */
+    public void format(StringBuilder text) {
+        text.append("# TYPE jhelp_requests_total counter\n");
+        for (OperationMetrics op : operations) {
+            text.append("jhelp_requests_total{op=\"").append(op.getName())
+                    .append("\"} ").append(op.getRequests()).append('\n');
+        }
+        text.append("# TYPE jhelp_errors_total counter\n");
+        for (OperationMetrics op : operations) {
+            text.append("jhelp_errors_total{op=\"").append(op.getName())
+                    .append("\"} ").append(op.getErrors()).append('\n');
+        }
+        text.append("# TYPE jhelp_stage_latency_seconds summary\n");
+        for (OperationMetrics op : operations) {
+            for (Stage stage : Stage.values()) {
+                LatencyHistogram histogram = op.getHistogram(stage);
+                long count = histogram.getCount();
+                if (count == 0) {
+                    continue;
+                }
+                String labels = "op=\"" + op.getName() + "\",stage=\"" + stage.getLabel() + "\"";
+                for (double q : QUANTILES) {
+                    text.append("jhelp_stage_latency_seconds{").append(labels)
+                            .append(",quantile=\"").append(q).append("\"} ")
+                            .append(seconds(histogram.getPercentile(q))).append('\n');
+                }
+                text.append("jhelp_stage_latency_seconds_sum{").append(labels).append("} ")
+                        .append(seconds(histogram.getSum())).append('\n');
+                text.append("jhelp_stage_latency_seconds_count{").append(labels).append("} ")
+                        .append(count).append('\n');
+            }
+        }
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+}
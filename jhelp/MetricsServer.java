@@ -0,0 +1,160 @@
+/*
+ * MetricsServer.java
+ */
+package jhelp;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * This class presents local HTTP endpoint which returns metrics of
+ * {@link jhelp.Server} in Prometheus text format. The endpoint listens on the
+ * loopback address only and serves path <code>/metrics</code>. Besides
+ * {@link jhelp.Metrics} of requests the endpoint returns state of connection
+ * pool, result cache, write coalescer, executors and error reporter.
+ *
+ * @see jhelp.Metrics
+ */
+public class MetricsServer implements HttpHandler {
+
+    private static final Log LOG = Log.getLog(MetricsServer.class);
+    private static final String PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private Server server;
+    private HttpServer http;
+
+    /**
+     * Creates a new instance of <code>MetricsServer</code>.
+     *
+     * @param server server which metrics are exported.
+     */
+    public MetricsServer(Server server) {
+        this.server = server;
+    }
+
+    /**
+     * The method starts the endpoint in its own thread.
+     *
+     * @param port port of the endpoint on the loopback address.
+     * @throws IOException if the port can't be bound.
+     */
+    public void start(int port) throws IOException {
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext(PATH, this);
+        http.start();
+        LOG.info(() -> "metrics endpoint http://localhost:" + port + PATH);
+    }
+
+    /**
+     * The method stops the endpoint.
+     */
+    public void stop() {
+        if (http != null) {
+            http.stop(0);
+        }
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            byte[] body = format().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * The method returns all metrics of the server in Prometheus text
+     * format.
+     *
+     * @return text of metrics.
+     */
+    public String format() {
+        StringBuilder text = new StringBuilder(8192);
+        server.getMetrics().format(text);
+        ConnectionPool pool = server.getPool();
+        if (pool != null) {
+            sample(text, "jhelp_pool_active", pool.getActiveCount());
+            sample(text, "jhelp_pool_idle", pool.getIdleCount());
+            sample(text, "jhelp_pool_checkouts_total", pool.getCheckouts());
+            sample(text, "jhelp_pool_checkout_failures_total", pool.getCheckoutFailures());
+            sample(text, "jhelp_pool_wait_seconds_total", pool.getWaitTime() / 1e3);
+        }
+        ResultCache cache = server.getCache();
+        if (cache != null) {
+            sample(text, "jhelp_cache_size", cache.size());
+            sample(text, "jhelp_cache_hits_total", cache.getHits());
+            sample(text, "jhelp_cache_misses_total", cache.getMisses());
+            sample(text, "jhelp_cache_evictions_total", cache.getEvictions());
+            sample(text, "jhelp_cache_invalidations_total", cache.getInvalidations());
+        }
+        WriteCoalescer coalescer = server.getWriteCoalescer();
+        if (coalescer != null) {
+            sample(text, "jhelp_write_groups_total", coalescer.getGroups());
+            sample(text, "jhelp_write_grouped_total", coalescer.getWrites());
+            sample(text, "jhelp_write_group_fallbacks_total", coalescer.getFallbacks());
+            sample(text, "jhelp_write_queue", coalescer.getQueueDepth());
+        }
+        PrefixIndex prefixIndex = server.getPrefixIndex();
+        if (prefixIndex != null) {
+            sample(text, "jhelp_prefix_index_terms", prefixIndex.size());
+            sample(text, "jhelp_prefix_index_bytes", prefixIndex.getMemoryBytes());
+        }
+        TermFilter termFilter = server.getTermFilter();
+        if (termFilter != null) {
+            sample(text, "jhelp_term_filter_bytes", termFilter.getMemoryBytes());
+            sample(text, "jhelp_term_filter_false_positive_rate",
+                    termFilter.getFalsePositiveRate());
+            sample(text, "jhelp_term_filter_lookups_total", termFilter.getLookups());
+            sample(text, "jhelp_term_filter_misses_total", termFilter.getMisses());
+        }
+        SubstringIndex substringIndex = server.getSubstringIndex();
+        if (substringIndex != null) {
+            sample(text, "jhelp_substring_index_terms", substringIndex.size());
+            sample(text, "jhelp_substring_index_bytes", substringIndex.getMemoryBytes());
+            sample(text, "jhelp_substring_index_rebuilds_total", substringIndex.getRebuilds());
+        }
+        FullTextIndex fullTextIndex = server.getFullTextIndex();
+        if (fullTextIndex != null) {
+            sample(text, "jhelp_fulltext_index_definitions", fullTextIndex.size());
+            sample(text, "jhelp_fulltext_index_tokens", fullTextIndex.getTokens());
+            sample(text, "jhelp_fulltext_index_bytes", fullTextIndex.getMemoryBytes());
+        }
+        executor(text, "worker", server.getWorkers());
+        executor(text, "request", server.getRequests());
+        sample(text, "jhelp_errors_reported_total", ErrorReporter.getInstance().getReportedCount());
+        sample(text, "jhelp_errors_dropped_total", ErrorReporter.getInstance().getDroppedCount());
+        sample(text, "jhelp_log_dropped_total", Log.getDroppedCount());
+        return text.toString();
+    }
+
+    private void executor(StringBuilder text, String name, ClientExecutor executor) {
+        if (executor == null) {
+            return;
+        }
+        String labels = "{executor=\"" + name + "\"}";
+        sample(text, "jhelp_executor_active" + labels, executor.getActiveCount());
+        sample(text, "jhelp_executor_queue" + labels, executor.getQueueDepth());
+        sample(text, "jhelp_executor_rejected_total" + labels, executor.getRejectedCount());
+    }
+
+    private static void sample(StringBuilder text, String name, Number value) {
+        text.append(name).append(' ').append(value).append('\n');
+    }
+}
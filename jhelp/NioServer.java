@@ -0,0 +1,473 @@
+/*
+ * NioServer.java
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * This class presents non-blocking front end of {@link jhelp.Server}. A few
+ * event loops own all client connections: they accept connections, read and
+ * decode frames of {@link jhelp.BinaryProtocol} and write responses from
+ * direct buffers. Decoded requests are executed by executor of requests, so
+ * an idle connection doesn't hold a thread. Only binary protocol is supported
+ * by this front end.
+ *
+ * @see jhelp.Server
+ * @see jhelp.DataCodec
+ */
+public class NioServer implements Runnable {
+
+    private static final Log LOG = Log.getLog(NioServer.class);
+
+    private static final byte MAGIC_0 = 'J';
+    private static final byte MAGIC_1 = 'H';
+    private static final int READ_BUFFER_SIZE = 4096;
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+    private static final long SELECT_TIMEOUT = 1000;
+
+    private Server server;
+    private int port;
+    private ClientExecutor requests;
+    private EventLoop[] loops;
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running = true;
+    private int next;
+
+    /**
+     * Creates a new instance of <code>NioServer</code>.
+     *
+     * @param server server which executes requests.
+     * @param port port for client connections.
+     * @param loops number of event loops.
+     * @param requests executor of decoded requests.
+     */
+    public NioServer(Server server, int port, int loops, ClientExecutor requests) {
+        this.server = server;
+        this.port = port;
+        this.requests = requests;
+        this.loops = new EventLoop[Math.max(1, loops)];
+    }
+
+    /**
+     * The method opens server channel, starts event loops and accepts client
+     * connections until {@link #close()} method is called.
+     */
+    @Override
+    public void run() {
+        LOG.info("run");
+        try (Selector acceptor = Selector.open();
+                ServerSocketChannel channel = ServerSocketChannel.open()) {
+            serverChannel = channel;
+            for (int i = 0; i < loops.length; ++i) {
+                loops[i] = new EventLoop(Selector.open());
+                Thread thread = new Thread(loops[i], "nio-loop-" + i);
+                thread.setDaemon(true);
+                thread.start();
+            }
+            channel.bind(new InetSocketAddress(port));
+            channel.configureBlocking(false);
+            channel.register(acceptor, SelectionKey.OP_ACCEPT);
+            while (running) {
+                acceptor.select();
+                Iterator<SelectionKey> keys = acceptor.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    keys.next();
+                    keys.remove();
+                    SocketChannel client;
+                    while ((client = channel.accept()) != null) {
+                        client.configureBlocking(false);
+                        client.socket().setTcpNoDelay(true);
+                        loops[next].register(client);
+                        next = (next + 1) % loops.length;
+                    }
+                }
+            }
+        } catch (IOException | ClosedSelectorException ex) {
+            if (running) {
+                LOG.error("accept error", ex);
+            }
+        } finally {
+            close();
+        }
+    }
+
+    /**
+     * The method stops accepting connections and closes all client
+     * connections.
+     */
+    public void close() {
+        running = false;
+        try {
+            if (serverChannel != null && serverChannel.isOpen()) {
+                serverChannel.close();
+            }
+        } catch (IOException ex) {
+            LOG.error("close error", ex);
+        }
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                loop.close();
+            }
+        }
+    }
+
+    /**
+     * @return number of client connections owned by event loops.
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (EventLoop loop : loops) {
+            if (loop != null) {
+                count += loop.selector.keys().size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Event loop owns selector and all connections registered with it. Only
+     * the loop thread touches connection buffers; other threads pass jobs to
+     * the loop through the queue of tasks.
+     */
+    private class EventLoop implements Runnable {
+
+        private Selector selector;
+        private Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private DataCodec codec = new DataCodec();
+        private DataCodec[] encoders = new DataCodec[DataCodec.VERSION + 1];
+        private ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private long lastIdleCheck = System.currentTimeMillis();
+
+        EventLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void register(final SocketChannel channel) {
+            submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                        key.attach(new Connection(EventLoop.this, key, channel));
+                    } catch (IOException ex) {
+                        closeQuietly(channel);
+                    }
+                }
+            });
+        }
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void close() {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    closeQuietly(key.channel());
+                }
+                selector.close();
+            } catch (IOException | ClosedSelectorException ex) {
+                // the loop is stopped anyway
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select(SELECT_TIMEOUT);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection con = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                con.read();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                con.flush();
+                            }
+                        } catch (IOException | IllegalArgumentException ex) {
+                            con.close();
+                        }
+                    }
+                    closeIdle();
+                }
+            } catch (IOException | ClosedSelectorException ex) {
+                if (running) {
+                    LOG.error("event loop error", ex);
+                }
+            }
+        }
+
+        private void closeIdle() {
+            long now = System.currentTimeMillis();
+            long timeout = server.getIdleTimeout();
+            if (now - lastIdleCheck < Math.min(timeout, SELECT_TIMEOUT)) {
+                return;
+            }
+            lastIdleCheck = now;
+            for (SelectionKey key : selector.keys()) {
+                Connection con = (Connection) key.attachment();
+                if (con != null && con.pending == 0 && now - con.lastActive > timeout) {
+                    con.close();
+                }
+            }
+        }
+
+        /**
+         * The method returns codec of the loop encoding frames of the
+         * version.
+         */
+        private DataCodec encoder(byte version) {
+            if (encoders[version] == null) {
+                encoders[version] = new DataCodec(version);
+            }
+            return encoders[version];
+        }
+
+        /**
+         * The method encodes the response into direct buffer of the loop in
+         * the version negotiated by the connection and writes it to the
+         * channel. Bytes which weren't written are kept by
+         * the connection until the channel becomes writable.
+         */
+        void send(Connection con, Data data, int operation) {
+            --con.pending;
+            if (!con.key.isValid()) {
+                return;
+            }
+            ByteBuffer buffer = writeBuffer;
+            DataCodec encoder = encoder(con.version);
+            int size = encoder.payloadLength(data) + 4;
+            if (size > buffer.capacity()) {
+                buffer = ByteBuffer.allocateDirect(size);
+            }
+            long start = System.nanoTime();
+            buffer.clear();
+            buffer.putInt(size - 4);
+            encoder.encode(data, buffer);
+            buffer.flip();
+            server.getMetrics().record(operation, Metrics.Stage.ENCODE, start);
+            try {
+                con.write(buffer);
+                con.resume();
+            } catch (IOException | IllegalArgumentException ex) {
+                con.close();
+            }
+        }
+    }
+
+    /**
+     * State of a client connection owned by an event loop. The connection
+     * isn't read while it has {@link Server#getMaxInFlight()} requests in
+     * flight or responses which the client hasn't read yet, so one client
+     * can't fill the executor of requests or memory of the server.
+     */
+    private class Connection {
+
+        private EventLoop loop;
+        private SelectionKey key;
+        private SocketChannel channel;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+        private Queue<ByteBuffer> output = new ArrayDeque<>();
+        private boolean handshaken;
+        private byte version = DataCodec.VERSION;
+        private int pending;
+        private boolean closing;
+        private long lastActive = System.currentTimeMillis();
+
+        Connection(EventLoop loop, SelectionKey key, SocketChannel channel) {
+            this.loop = loop;
+            this.key = key;
+            this.channel = channel;
+        }
+
+        void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                close();
+                return;
+            }
+            lastActive = System.currentTimeMillis();
+            process();
+        }
+
+        /**
+         * The method dispatches buffered requests while the connection may
+         * take them and updates interest of the key.
+         */
+        private void process() throws IOException {
+            readBuffer.flip();
+            if (!handshaken && !handshake()) {
+                readBuffer.compact();
+                return;
+            }
+            while (isAccepting() && readBuffer.remaining() >= 4) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < 0 || length > DataCodec.MAX_FRAME) {
+                    throw new IOException("Wrong frame length " + length);
+                }
+                if (readBuffer.remaining() < length + 4) {
+                    if (readBuffer.capacity() < length + 4) {
+                        ByteBuffer bigger = ByteBuffer.allocate(length + 4);
+                        bigger.put(readBuffer);
+                        readBuffer = bigger;
+                        updateInterest();
+                        return;
+                    }
+                    break;
+                }
+                int end = readBuffer.position() + 4 + length;
+                int limit = readBuffer.limit();
+                readBuffer.position(readBuffer.position() + 4);
+                readBuffer.limit(end);
+                long start = System.nanoTime();
+                Data data = loop.codec.decode(readBuffer);
+                server.getMetrics().record(data.getOperation(), Metrics.Stage.DECODE, start);
+                readBuffer.limit(limit);
+                readBuffer.position(end);
+                dispatch(data);
+            }
+            readBuffer.compact();
+            updateInterest();
+        }
+
+        private boolean isAccepting() {
+            return !closing && pending < server.getMaxInFlight() && output.isEmpty();
+        }
+
+        private void updateInterest() {
+            if (key.isValid()) {
+                key.interestOps((isAccepting() ? SelectionKey.OP_READ : 0)
+                        | (output.isEmpty() ? 0 : SelectionKey.OP_WRITE));
+            }
+        }
+
+        /**
+         * The method goes on after a response is sent or written out: the
+         * connection closed by the client is closed when all responses are
+         * written, otherwise buffered requests are dispatched.
+         */
+        void resume() throws IOException {
+            if (closing && pending == 0 && output.isEmpty()) {
+                close();
+            } else if (key.isValid()) {
+                process();
+            }
+        }
+
+        private boolean handshake() throws IOException {
+            if (readBuffer.remaining() < 3) {
+                return false;
+            }
+            if (readBuffer.get() != MAGIC_0 || readBuffer.get() != MAGIC_1) {
+                throw new IOException("Unknown protocol");
+            }
+            byte version = readBuffer.get();
+            if (version < 1) {
+                throw new IOException("Wrong protocol version " + version);
+            }
+            handshaken = true;
+            this.version = (byte) Math.min(version, DataCodec.VERSION);
+            write(ByteBuffer.wrap(new byte[]{MAGIC_0, MAGIC_1, this.version}));
+            return true;
+        }
+
+        private void dispatch(final Data data) {
+            if (data.getOperation() == JHelp.DISCONNECT) {
+                closing = true;
+                if (pending == 0 && output.isEmpty()) {
+                    close();
+                }
+                return;
+            }
+            ++pending;
+            final int operation = data.getOperation();
+            final long queued = System.nanoTime();
+            final RequestEvent event = new RequestEvent();
+            event.begin();
+            try {
+                requests.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        server.getMetrics().record(operation, Metrics.Stage.QUEUE, queued);
+                        final Data response = server.getData(data);
+                        response.setRequestId(data.getRequestId());
+                        event.commit(operation, response);
+                        loop.submit(new Runnable() {
+                            @Override
+                            public void run() {
+                                loop.send(Connection.this, response, operation);
+                            }
+                        });
+                    }
+                });
+            } catch (RejectedExecutionException ex) {
+                data.setOperation(JHelp.ERROR);
+                loop.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        loop.send(Connection.this, data, operation);
+                    }
+                });
+            }
+        }
+
+        void write(ByteBuffer buffer) throws IOException {
+            if (output.isEmpty()) {
+                channel.write(buffer);
+            }
+            if (buffer.hasRemaining()) {
+                ByteBuffer rest = ByteBuffer.allocateDirect(buffer.remaining());
+                rest.put(buffer);
+                rest.flip();
+                output.add(rest);
+                updateInterest();
+            }
+        }
+
+        void flush() throws IOException {
+            ByteBuffer buffer;
+            while ((buffer = output.peek()) != null) {
+                channel.write(buffer);
+                if (buffer.hasRemaining()) {
+                    return;
+                }
+                output.poll();
+            }
+            resume();
+        }
+
+        void close() {
+            key.cancel();
+            closeQuietly(channel);
+        }
+    }
+
+    private static void closeQuietly(java.nio.channels.Channel channel) {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            // the channel is dropped anyway
+        }
+    }
+}
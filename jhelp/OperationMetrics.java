@@ -0,0 +1,129 @@
+/*
+ * OperationMetrics.java
+ */
+package jhelp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class collects metrics of one operation: numbers of requests and
+ * failures and a {@link jhelp.LatencyHistogram} for every
+ * {@link Metrics.Stage} of the request.
+ *
+ * @see jhelp.Metrics
+ */
+public class OperationMetrics implements OperationMetricsMXBean {
+
+    private String name;
+    private LatencyHistogram[] stages = new LatencyHistogram[Metrics.Stage.values().length];
+    private LongAdder requests = new LongAdder();
+    private LongAdder errors = new LongAdder();
+
+    /**
+     * Creates a new instance of <code>OperationMetrics</code>.
+     *
+     * @param name name of the operation.
+     */
+    public OperationMetrics(String name) {
+        this.name = name;
+        for (int i = 0; i < stages.length; ++i) {
+            stages[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * The method records latency of the stage.
+     *
+     * @param stage stage of the request.
+     * @param nanos latency in nanoseconds.
+     */
+    public void record(Metrics.Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * The method counts served request.
+     *
+     * @param failed <code>true</code> if the request is answered with
+     * {@link JHelp#ERROR} status. Requests which find nothing aren't
+     * failed.
+     */
+    public void count(boolean failed) {
+        requests.increment();
+        if (failed) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @param stage stage of the request.
+     * @return histogram of the stage.
+     */
+    public LatencyHistogram getHistogram(Metrics.Stage stage) {
+        return stages[stage.ordinal()];
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public Map<String, Long> getMeanMicros() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            result.put(stage.getLabel(), micros(getHistogram(stage).getMean()));
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getP50Micros() {
+        return percentiles(0.5);
+    }
+
+    @Override
+    public Map<String, Long> getP99Micros() {
+        return percentiles(0.99);
+    }
+
+    @Override
+    public Map<String, Long> getP999Micros() {
+        return percentiles(0.999);
+    }
+
+    @Override
+    public Map<String, Long> getMaxMicros() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            result.put(stage.getLabel(), micros(getHistogram(stage).getMax()));
+        }
+        return result;
+    }
+
+    private Map<String, Long> percentiles(double quantile) {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            result.put(stage.getLabel(),
+                    micros(getHistogram(stage).getPercentile(quantile)));
+        }
+        return result;
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
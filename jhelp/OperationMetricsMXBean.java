@@ -0,0 +1,54 @@
+/*
+ * OperationMetricsMXBean.java
+ */
+package jhelp;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link jhelp.OperationMetrics}. Latencies are
+ * given in microseconds for every stage of the request: <code>decode</code>,
+ * <code>queue</code>, <code>db</code> and <code>encode</code>.
+ */
+public interface OperationMetricsMXBean {
+
+    /**
+     * @return name of the operation.
+     */
+    String getName();
+
+    /**
+     * @return number of served requests.
+     */
+    long getRequests();
+
+    /**
+     * @return number of requests answered with {@link JHelp#ERROR} status.
+     */
+    long getErrors();
+
+    /**
+     * @return mean latency of every stage.
+     */
+    Map<String, Long> getMeanMicros();
+
+    /**
+     * @return median latency of every stage.
+     */
+    Map<String, Long> getP50Micros();
+
+    /**
+     * @return 99th percentile of latency of every stage.
+     */
+    Map<String, Long> getP99Micros();
+
+    /**
+     * @return 99.9th percentile of latency of every stage.
+     */
+    Map<String, Long> getP999Micros();
+
+    /**
+     * @return maximum latency of every stage.
+     */
+    Map<String, Long> getMaxMicros();
+}
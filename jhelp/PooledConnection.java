@@ -0,0 +1,136 @@
+/*
+ * PooledConnection.java
+ */
+package jhelp;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * This class presents a connection of {@link jhelp.ConnectionPool}. The object
+ * keeps prepared statements of the connection, so every SQL script is prepared
+ * only once per connection. Statements returned by {@link #prepare(String)}
+ * method must not be closed by the caller. The object is used by one thread at
+ * a time.
+ *
+ * @see jhelp.ConnectionPool
+ */
+public class PooledConnection implements AutoCloseable {
+
+    private ConnectionPool pool;
+    private Connection connection;
+    private Map<String, PreparedStatement> statements = new HashMap<>();
+    private Map<String, PreparedStatement> keyStatements = new HashMap<>();
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    /**
+     * @return underlying JDBC connection.
+     */
+    public Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * The method returns cached prepared statement for the script.
+     *
+     * @param script SQL script.
+     * @return prepared statement with cleared parameters.
+     * @throws SQLException if the script can't be prepared.
+     */
+    public PreparedStatement prepare(String script) throws SQLException {
+        return prepare(statements, script, Statement.NO_GENERATED_KEYS);
+    }
+
+    /**
+     * The method returns cached prepared statement for the script, which
+     * returns generated keys.
+     *
+     * @param script SQL insert script.
+     * @return prepared statement with cleared parameters.
+     * @throws SQLException if the script can't be prepared.
+     */
+    public PreparedStatement prepareWithKeys(String script) throws SQLException {
+        return prepare(keyStatements, script, Statement.RETURN_GENERATED_KEYS);
+    }
+
+    private PreparedStatement prepare(Map<String, PreparedStatement> cache,
+            String script, int keys) throws SQLException {
+        PreparedStatement pstmt = cache.get(script);
+        if (pstmt == null || pstmt.isClosed()) {
+            pstmt = connection.prepareStatement(script, keys);
+            cache.put(script, pstmt);
+        } else {
+            pstmt.clearParameters();
+        }
+        return pstmt;
+    }
+
+    boolean isValid() {
+        try {
+            return !connection.isClosed();
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * The method prepares connection for the next user: rolls back uncommitted
+     * work and restores auto-commit mode.
+     *
+     * @return <code>true</code> if the connection may be used again.
+     */
+    boolean reset() {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException ex) {
+            return false;
+        }
+    }
+
+    void destroy() {
+        for (PreparedStatement pstmt : statements.values()) {
+            closeQuietly(pstmt);
+        }
+        for (PreparedStatement pstmt : keyStatements.values()) {
+            closeQuietly(pstmt);
+        }
+        statements.clear();
+        keyStatements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ex) {
+            // the connection is dropped anyway
+        }
+    }
+
+    private void closeQuietly(Statement stmt) {
+        try {
+            stmt.close();
+        } catch (SQLException ex) {
+            // the connection is closed next
+        }
+    }
+
+    /**
+     * The method returns the connection back to the pool.
+     */
+    @Override
+    public void close() {
+        pool.release(this);
+    }
+}
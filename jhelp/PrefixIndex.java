@@ -0,0 +1,549 @@
+/*
+ * PrefixIndex.java
+ */
+package jhelp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class presents in-memory index of normalized terms for prefix
+ * search and completion. Terms are kept in sorted order in three primitive
+ * arrays: characters of all terms one after another, offsets of terms in
+ * the characters and identificators of terms. Such index takes about two
+ * bytes per character and eight bytes per term, several times less than a
+ * <code>HashMap&lt;String, Integer&gt;</code> over the same terms.
+ * <p>
+ * The arrays are immutable, so the index is read without locks. Changes
+ * received as {@link StorageEngine.Listener} are collected in a small
+ * sorted delta of added terms and a sorted array of removed
+ * identificators, which are replaced by new arrays on every change. When
+ * the delta grows above an eighth of the index, it's merged into new
+ * arrays.
+ * <p>
+ * The sorted arrays also serve search of terms with typos: terms are walked
+ * in order as paths of a trie, every character adds a row of Levenshtein
+ * distance matrix to the rows shared with the previous term. When all
+ * values of a row exceed the maximum distance, all terms with the same
+ * beginning are skipped by binary search, so only beginnings of terms close
+ * to the text are visited.
+ *
+ * @see jhelp.Terms#normalize(String)
+ */
+public class PrefixIndex implements StorageEngine.Listener {
+
+    private static final int MIN_DELTA = 256;
+    private static final int[] NONE = new int[0];
+
+    private volatile State state;
+
+    /**
+     * Creates a new empty instance of <code>PrefixIndex</code>.
+     */
+    public PrefixIndex() {
+        state = new State(Keys.EMPTY, Keys.EMPTY, NONE);
+    }
+
+    /**
+     * The method builds the index from all terms of the storage.
+     *
+     * @param engine storage of terms.
+     * @return index of terms or <code>null</code> if the storage can't be
+     * read.
+     */
+    public static PrefixIndex load(StorageEngine engine) {
+        List<String> keys = new ArrayList<>();
+        IntList ids = new IntList();
+        int status = engine.scan((termId, term, definitions) -> {
+            keys.add(Terms.normalize(term));
+            ids.add(termId);
+        });
+        if (status != JHelp.OK) {
+            return null;
+        }
+        PrefixIndex index = new PrefixIndex();
+        index.state = new State(Keys.build(keys, ids.toArray()), Keys.EMPTY, NONE);
+        return index;
+    }
+
+    /**
+     * The method returns terms starting with the prefix in alphabetical
+     * order.
+     *
+     * @param prefix beginning of terms, it's normalized before search.
+     * @param limit maximum number of terms.
+     * @return items with identificators and normalized texts of terms.
+     */
+    public Item[] complete(String prefix, int limit) {
+        State current = state;
+        String key = Terms.normalize(prefix);
+        Keys base = current.base;
+        Keys added = current.added;
+        int i = base.lowerBound(key);
+        int j = added.lowerBound(key);
+        List<Item> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit) {
+            while (i < base.size && base.startsWith(i, key)
+                    && Arrays.binarySearch(current.removed, base.ids[i]) >= 0) {
+                ++i;
+            }
+            boolean inBase = i < base.size && base.startsWith(i, key);
+            boolean inAdded = j < added.size && added.startsWith(j, key);
+            if (!inBase && !inAdded) {
+                break;
+            }
+            if (inBase && (!inAdded || base.compare(i, added.key(j)) < 0)) {
+                result.add(new Item(base.ids[i], base.key(i), JHelp.ORIGIN));
+                ++i;
+            } else {
+                result.add(new Item(added.ids[j], added.key(j), JHelp.ORIGIN));
+                ++j;
+            }
+        }
+        return result.toArray(new Item[result.size()]);
+    }
+
+    /**
+     * The method returns terms within Levenshtein distance from the text
+     * ordered by distance, terms with equal distance in alphabetical order.
+     *
+     * @param text requested text, it's normalized before search.
+     * @param maxDistance maximum number of inserted, removed and replaced
+     * characters.
+     * @param limit maximum number of terms.
+     * @return items with identificators and normalized texts of terms.
+     */
+    public Item[] fuzzy(String text, int maxDistance, int limit) {
+        State current = state;
+        String key = Terms.normalize(text);
+        List<Match> matches = new ArrayList<>();
+        current.base.fuzzy(key, maxDistance, current.removed, matches);
+        current.added.fuzzy(key, maxDistance, NONE, matches);
+        matches.sort((a, b) -> a.distance != b.distance
+                ? Integer.compare(a.distance, b.distance) : a.key.compareTo(b.key));
+        Item[] result = new Item[Math.min(limit, matches.size())];
+        for (int i = 0; i < result.length; ++i) {
+            result[i] = new Item(matches.get(i).id, matches.get(i).key, JHelp.ORIGIN);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void termAdded(int termId, String term) {
+        String key = Terms.normalize(term);
+        State current = state;
+        int[] removed = current.removed;
+        int b = current.base.find(key);
+        if (b >= 0) {
+            int r = Arrays.binarySearch(removed, current.base.ids[b]);
+            if (current.base.ids[b] == termId) {
+                if (r >= 0) {
+                    update(current.base, current.added, delete(removed, r));
+                }
+                return;
+            }
+            if (r < 0) {
+                removed = insert(removed, current.base.ids[b]);
+            }
+        }
+        update(current.base, current.added.put(key, termId), removed);
+    }
+
+    @Override
+    public synchronized void termRemoved(int termId, String term) {
+        String key = Terms.normalize(term);
+        State current = state;
+        int a = current.added.find(key);
+        if (a >= 0 && current.added.ids[a] == termId) {
+            update(current.base, current.added.remove(a), current.removed);
+            return;
+        }
+        int b = current.base.find(key);
+        if (b >= 0 && current.base.ids[b] == termId
+                && Arrays.binarySearch(current.removed, termId) < 0) {
+            update(current.base, current.added, insert(current.removed, termId));
+        }
+    }
+
+    private void update(Keys base, Keys added, int[] removed) {
+        if (added.size + removed.length > Math.max(MIN_DELTA, base.size / 8)) {
+            state = new State(Keys.merge(base, added, removed), Keys.EMPTY, NONE);
+        } else {
+            state = new State(base, added, removed);
+        }
+    }
+
+    /**
+     * @return number of terms in the index.
+     */
+    public int size() {
+        State current = state;
+        return current.base.size - current.removed.length + current.added.size;
+    }
+
+    /**
+     * @return approximate size of arrays of the index in bytes.
+     */
+    public long getMemoryBytes() {
+        State current = state;
+        return current.base.bytes() + current.added.bytes() + 4L * current.removed.length;
+    }
+
+    private static int[] insert(int[] sorted, int value) {
+        int i = -Arrays.binarySearch(sorted, value) - 1;
+        int[] result = new int[sorted.length + 1];
+        System.arraycopy(sorted, 0, result, 0, i);
+        result[i] = value;
+        System.arraycopy(sorted, i, result, i + 1, sorted.length - i);
+        return result;
+    }
+
+    private static int[] delete(int[] sorted, int index) {
+        int[] result = new int[sorted.length - 1];
+        System.arraycopy(sorted, 0, result, 0, index);
+        System.arraycopy(sorted, index + 1, result, index, result.length - index);
+        return result;
+    }
+
+    private static class State {
+
+        private final Keys base;
+        private final Keys added;
+        private final int[] removed;
+
+        State(Keys base, Keys added, int[] removed) {
+            this.base = base;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * Immutable sorted set of keys with identificators.
+     */
+    private static class Keys {
+
+        private static final Keys EMPTY = new Keys(new char[0], new int[1], NONE);
+
+        private final char[] chars;
+        private final int[] offsets;
+        private final int[] ids;
+        private final int size;
+
+        Keys(char[] chars, int[] offsets, int[] ids) {
+            this.chars = chars;
+            this.offsets = offsets;
+            this.ids = ids;
+            this.size = ids.length;
+        }
+
+        static Keys build(List<String> keys, int[] ids) {
+            Integer[] order = new Integer[ids.length];
+            for (int i = 0; i < order.length; ++i) {
+                order[i] = i;
+            }
+            Arrays.sort(order, (a, b) -> keys.get(a).compareTo(keys.get(b)));
+            Builder builder = new Builder(ids.length);
+            for (int i : order) {
+                builder.add(keys.get(i), ids[i]);
+            }
+            return builder.build();
+        }
+
+        static Keys merge(Keys base, Keys added, int[] removed) {
+            Builder builder = new Builder(base.size + added.size);
+            int i = 0;
+            int j = 0;
+            while (i < base.size || j < added.size) {
+                if (i < base.size && Arrays.binarySearch(removed, base.ids[i]) >= 0) {
+                    ++i;
+                } else if (j >= added.size
+                        || (i < base.size && base.compare(i, added.key(j)) < 0)) {
+                    builder.add(base, i++);
+                } else {
+                    builder.add(added, j++);
+                }
+            }
+            return builder.build();
+        }
+
+        Keys put(String key, int id) {
+            int i = find(key);
+            Builder builder = new Builder(size + 1);
+            if (i >= 0) {
+                for (int k = 0; k < size; ++k) {
+                    if (k == i) {
+                        builder.add(key, id);
+                    } else {
+                        builder.add(this, k);
+                    }
+                }
+                return builder.build();
+            }
+            int at = lowerBound(key);
+            for (int k = 0; k < at; ++k) {
+                builder.add(this, k);
+            }
+            builder.add(key, id);
+            for (int k = at; k < size; ++k) {
+                builder.add(this, k);
+            }
+            return builder.build();
+        }
+
+        Keys remove(int index) {
+            Builder builder = new Builder(size - 1);
+            for (int k = 0; k < size; ++k) {
+                if (k != index) {
+                    builder.add(this, k);
+                }
+            }
+            return builder.build();
+        }
+
+        String key(int i) {
+            return new String(chars, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+
+        int compare(int i, String key) {
+            int from = offsets[i];
+            int length = offsets[i + 1] - from;
+            int n = Math.min(length, key.length());
+            for (int k = 0; k < n; ++k) {
+                int c = chars[from + k] - key.charAt(k);
+                if (c != 0) {
+                    return c;
+                }
+            }
+            return length - key.length();
+        }
+
+        boolean startsWith(int i, String prefix) {
+            int from = offsets[i];
+            if (offsets[i + 1] - from < prefix.length()) {
+                return false;
+            }
+            for (int k = 0; k < prefix.length(); ++k) {
+                if (chars[from + k] != prefix.charAt(k)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The method returns index of the first key not less than the given
+         * one.
+         */
+        int lowerBound(String key) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(middle, key) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        int find(String key) {
+            int i = lowerBound(key);
+            return i < size && compare(i, key) == 0 ? i : -1;
+        }
+
+        long bytes() {
+            return 2L * chars.length + 4L * offsets.length + 4L * ids.length;
+        }
+
+        /**
+         * The method adds keys within the distance from the text which
+         * aren't removed. Row <code>d</code> of the matrix holds distances
+         * between the first <code>d</code> characters of the current key and
+         * beginnings of the text. Distances above the maximum are kept as
+         * <code>maxDistance + 1</code>, and only cells not farther than the
+         * maximum from the diagonal are computed, other cells can't be within
+         * the maximum.
+         */
+        void fuzzy(String text, int maxDistance, int[] removed, List<Match> matches) {
+            int width = text.length() + 1;
+            int over = maxDistance + 1;
+            int[][] rows = new int[16][];
+            rows[0] = new int[width];
+            for (int j = 0; j < width; ++j) {
+                rows[0][j] = Math.min(j, over);
+            }
+            int valid = 0;
+            int i = 0;
+            while (i < size) {
+                int from = offsets[i];
+                int length = offsets[i + 1] - from;
+                int depth = Math.min(valid, i == 0 ? 0 : commonPrefix(i - 1, i));
+                boolean skipped = false;
+                while (depth < length) {
+                    ++depth;
+                    if (depth == rows.length) {
+                        rows = Arrays.copyOf(rows, depth << 1);
+                    }
+                    if (rows[depth] == null) {
+                        rows[depth] = new int[width];
+                        Arrays.fill(rows[depth], over);
+                    }
+                    int[] previous = rows[depth - 1];
+                    int[] row = rows[depth];
+                    char c = chars[from + depth - 1];
+                    int low = Math.max(1, depth - maxDistance);
+                    int high = Math.min(width - 1, depth + maxDistance);
+                    row[0] = Math.min(depth, over);
+                    if (low > 1) {
+                        row[low - 1] = over;
+                    }
+                    int best = row[0];
+                    for (int j = low; j <= high; ++j) {
+                        int cost = c == text.charAt(j - 1) ? 0 : 1;
+                        row[j] = Math.min(over, Math.min(Math.min(row[j - 1], previous[j]) + 1,
+                                previous[j - 1] + cost));
+                        best = Math.min(best, row[j]);
+                    }
+                    if (best > maxDistance) {
+                        valid = depth - 1;
+                        i = skip(i, depth);
+                        skipped = true;
+                        break;
+                    }
+                }
+                if (skipped) {
+                    continue;
+                }
+                valid = length;
+                int distance = rows[length][width - 1];
+                if (distance <= maxDistance && Arrays.binarySearch(removed, ids[i]) < 0) {
+                    matches.add(new Match(key(i), ids[i], distance));
+                }
+                ++i;
+            }
+        }
+
+        private int commonPrefix(int a, int b) {
+            int fromA = offsets[a];
+            int fromB = offsets[b];
+            int n = Math.min(offsets[a + 1] - fromA, offsets[b + 1] - fromB);
+            int k = 0;
+            while (k < n && chars[fromA + k] == chars[fromB + k]) {
+                ++k;
+            }
+            return k;
+        }
+
+        /**
+         * The method returns index of the first key after <code>i</code>
+         * which doesn't start with the first <code>depth</code> characters
+         * of key <code>i</code>. Skipped ranges are usually short, so the
+         * range is found by doubling steps before binary search.
+         */
+        private int skip(int i, int depth) {
+            int low = i + 1;
+            int step = 1;
+            while (low + step < size && sharesPrefix(i, low + step, depth)) {
+                low += step;
+                step <<= 1;
+            }
+            int high = Math.min(size, low + step);
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sharesPrefix(i, middle, depth)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private boolean sharesPrefix(int i, int j, int depth) {
+            return offsets[j + 1] - offsets[j] >= depth && commonPrefix(i, j) >= depth;
+        }
+    }
+
+    private static class Match {
+
+        private final String key;
+        private final int id;
+        private final int distance;
+
+        Match(String key, int id, int distance) {
+            this.key = key;
+            this.id = id;
+            this.distance = distance;
+        }
+    }
+
+    private static class Builder {
+
+        private char[] chars;
+        private int[] offsets;
+        private int[] ids;
+        private int size;
+        private int length;
+
+        Builder(int capacity) {
+            chars = new char[Math.max(16, capacity * 8)];
+            offsets = new int[capacity + 1];
+            ids = new int[capacity];
+        }
+
+        void add(String key, int id) {
+            ensure(key.length());
+            key.getChars(0, key.length(), chars, length);
+            append(key.length(), id);
+        }
+
+        void add(Keys keys, int i) {
+            int from = keys.offsets[i];
+            int count = keys.offsets[i + 1] - from;
+            ensure(count);
+            System.arraycopy(keys.chars, from, chars, length, count);
+            append(count, keys.ids[i]);
+        }
+
+        private void ensure(int count) {
+            if (length + count > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + count));
+            }
+        }
+
+        private void append(int count, int id) {
+            length += count;
+            ids[size] = id;
+            offsets[++size] = length;
+        }
+
+        Keys build() {
+            return new Keys(Arrays.copyOf(chars, length), Arrays.copyOf(offsets, size + 1),
+                    Arrays.copyOf(ids, size));
+        }
+    }
+
+    /**
+     * Growing array of <code>int</code> values.
+     */
+    private static class IntList {
+
+        private int[] values = new int[64];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
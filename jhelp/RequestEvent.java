@@ -0,0 +1,67 @@
+/*
+ * RequestEvent.java
+ */
+package jhelp;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event which covers a client request from its receiving by
+ * {@link jhelp.ClientThread} or {@link jhelp.NioServer} object to the
+ * response. The event is disabled by default; it's enabled by recording
+ * settings, for example by <code>configs/jhelp.jfc</code> file:
+ * <pre>
+ *     java -XX:StartFlightRecording:settings=configs/jhelp.jfc jhelp.Server
+ * </pre>
+ * While the event is disabled its methods do nothing.
+ *
+ * @see jhelp.DbOperationEvent
+ * @see jhelp.CacheEvent
+ */
+@Name("jhelp.Request")
+@Label("JHelp Request")
+@Category("JHelp")
+@Description("Request of a client from receiving to the response")
+@Enabled(false)
+@StackTrace(false)
+public class RequestEvent extends Event {
+
+    @Label("Operation")
+    int operation;
+
+    @Label("Request Id")
+    int requestId;
+
+    @Label("Term Length")
+    int termLength;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Status")
+    int status;
+
+    /**
+     * The method commits the event with attributes of the response, if the
+     * event is enabled and passes the threshold.
+     *
+     * @param operation code of requested operation.
+     * @param response response of the server.
+     */
+    public void commit(int operation, Data response) {
+        if (shouldCommit()) {
+            this.operation = operation;
+            requestId = response.getRequestId();
+            termLength = DbOperationEvent.termLength(response);
+            rows = DbOperationEvent.rows(response);
+            status = response.getOperation();
+            commit();
+        }
+    }
+}
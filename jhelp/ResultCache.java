@@ -0,0 +1,219 @@
+/*
+ * ResultCache.java
+ */
+package jhelp;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class presents bounded cache of results of {@link JHelp#SELECT}
+ * requests. Results are kept by normalized term (see {@link Terms}) no longer
+ * than time to live; when the cache is full the least recently used result is
+ * evicted.
+ * <p>
+ * The cache follows the storage as {@link StorageEngine.Listener}. A term
+ * matches every term which contains it, wildcards included (see
+ * {@link MemoryStorageEngine}), so a new term <code>T</code> or new
+ * definitions of <code>T</code> invalidate results of all terms matching
+ * <code>T</code>. A changed or removed definition invalidates
+ * results containing the definition. A result read from storage while a
+ * change was made isn't stored, see {@link #version()}.
+ */
+public class ResultCache implements StorageEngine.Listener {
+
+    private int maxSize;
+    private long ttl;
+    private long version;
+    private Map<String, Cached> entries;
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+    private AtomicLong evictions = new AtomicLong();
+    private AtomicLong invalidations = new AtomicLong();
+
+    /**
+     * Creates a new instance of <code>ResultCache</code>.
+     *
+     * @param maxSize maximum number of results in the cache.
+     * @param ttl time to live of a result in milliseconds.
+     */
+    public ResultCache(int maxSize, long ttl) {
+        this.maxSize = maxSize;
+        this.ttl = ttl;
+        entries = new LinkedHashMap<String, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+                if (size() > ResultCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * The method returns copy of cached result for the term.
+     *
+     * @param term normalized term.
+     * @return copy of the result or <code>null</code> if there is no result
+     * or it's expired.
+     */
+    public Data get(String term) {
+        Cached entry;
+        synchronized (this) {
+            entry = entries.get(term);
+            if (entry != null && entry.expires < System.currentTimeMillis()) {
+                entries.remove(term);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.result.copy();
+    }
+
+    /**
+     * The method returns current version of the cache. The version is changed
+     * by every invalidation. A caller reads the version before reading result
+     * from database and passes it to {@link #put(String, Data, long)}.
+     *
+     * @return current version.
+     */
+    public synchronized long version() {
+        return version;
+    }
+
+    /**
+     * The method stores copy of the result if the cache wasn't invalidated
+     * since <code>version</code> was read.
+     *
+     * @param term normalized term.
+     * @param result result of {@link JHelp#SELECT} request.
+     * @param version version read before the result.
+     */
+    public void put(String term, Data result, long version) {
+        Cached entry = new Cached(result.copy(), System.currentTimeMillis() + ttl);
+        synchronized (this) {
+            if (this.version == version) {
+                entries.put(term, entry);
+            }
+        }
+    }
+
+    @Override
+    public void termAdded(int termId, String term) {
+        invalidate(Terms.normalize(term), -1);
+    }
+
+    @Override
+    public void termRemoved(int termId, String term) {
+    }
+
+    @Override
+    public void termChanged(int termId, String term) {
+        invalidate(Terms.normalize(term), -1);
+    }
+
+    @Override
+    public void definitionAdded(int definitionId, String text) {
+        invalidate(null, definitionId);
+    }
+
+    @Override
+    public void definitionRemoved(int definitionId) {
+        invalidate(null, definitionId);
+    }
+
+    /**
+     * The method removes results of terms matching the term and results
+     * containing the definition.
+     *
+     * @param term normalized changed term or <code>null</code>.
+     * @param definitionId identificator of changed definition or a negative
+     * value.
+     */
+    private synchronized void invalidate(String term, int definitionId) {
+        ++version;
+        Iterator<Map.Entry<String, Cached>> it = entries.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, Cached> e = it.next();
+            if ((term != null && TermEntry.like(term, e.getKey()))
+                    || (definitionId > 0 && e.getValue().contains(definitionId))) {
+                it.remove();
+                invalidations.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @return number of results in the cache.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return number of requests answered by the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of requests not found in the cache.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of results removed by size limit or time to live.
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return number of results removed by changes of terms.
+     */
+    public long getInvalidations() {
+        return invalidations.get();
+    }
+
+    @Override
+    public String toString() {
+        return "size=" + size() + ", hits=" + getHits() + ", misses=" + getMisses()
+                + ", evictions=" + getEvictions()
+                + ", invalidations=" + getInvalidations();
+    }
+
+    private static class Cached {
+
+        private Data result;
+        private int[] definitions;
+        private long expires;
+
+        Cached(Data result, long expires) {
+            this.result = result;
+            this.expires = expires;
+            Item[] values = result.getValues();
+            definitions = new int[values == null ? 0 : values.length];
+            for (int i = 0; i < definitions.length; ++i) {
+                definitions[i] = values[i].getId();
+            }
+            Arrays.sort(definitions);
+        }
+
+        boolean contains(int definitionId) {
+            return Arrays.binarySearch(definitions, definitionId) >= 0;
+        }
+    }
+}
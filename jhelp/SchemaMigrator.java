@@ -0,0 +1,134 @@
+/*
+ * SchemaMigrator.java
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * This class brings database schema of {@link JdbcStorageEngine} to
+ * {@link #VERSION}. Applied versions are kept in <code>tblSchemaVersion</code>
+ * table. Every version is described by <code>schemaN.sql</code> script of
+ * {@link JHelp#SCRIPT_PATH} directory with statements
+ * <code>script1</code>, <code>script2</code> and so on, which are executed
+ * in one transaction together with the record of the version.
+ * <p>
+ * Statements creating tables and indexes which already exist are skipped,
+ * so a schema created by hand before versioning is adopted by the first
+ * versions:
+ * <ol>
+ * <li>tables of terms, definitions and term trigrams;</li>
+ * <li>normalized term column <code>TERM_KEY</code> with unique constraint,
+ * terms with equal normalized text are merged;</li>
+ * <li>foreign keys of definitions and trigrams to terms, indexed by
+ * <code>TERM_ID</code>; definitions without a term are removed.</li>
+ * </ol>
+ *
+ * @see jhelp.Terms#normalize(String)
+ */
+public class SchemaMigrator {
+
+    /**
+     * Version of the schema expected by the server.
+     */
+    public static final int VERSION = 3;
+    private static final Log LOG = Log.getLog(SchemaMigrator.class);
+    private static final String ALREADY_EXISTS = "X0Y32";
+
+    private String createSchemaVersionScript;
+    private String selectSchemaVersionScript;
+    private String insertSchemaVersionScript;
+
+    /**
+     * Creates a new instance of <code>SchemaMigrator</code>.
+     *
+     * @throws IOException if scripts of the version table can't be read.
+     */
+    public SchemaMigrator() throws IOException {
+        createSchemaVersionScript = script("createSchemaVersion.sql");
+        selectSchemaVersionScript = script("selectSchemaVersion.sql");
+        insertSchemaVersionScript = script("insertSchemaVersion.sql");
+    }
+
+    /**
+     * The method applies all versions of the schema newer than the version
+     * of the database.
+     *
+     * @param con connection to database. Auto-commit mode of the connection
+     * is disabled.
+     * @return number of applied versions.
+     * @throws SQLException if a version fails, the version is rolled back.
+     * @throws IOException if a script can't be read.
+     */
+    public int migrate(Connection con) throws SQLException, IOException {
+        con.setAutoCommit(false);
+        try (Statement stmt = con.createStatement()) {
+            execute(stmt, createSchemaVersionScript);
+            con.commit();
+        }
+        int current = currentVersion(con);
+        for (int version = current + 1; version <= VERSION; ++version) {
+            List<String> statements = statements(version);
+            LOG.info("apply schema version " + version);
+            try (Statement stmt = con.createStatement()) {
+                for (String sql : statements) {
+                    execute(stmt, sql);
+                }
+                try (PreparedStatement pstmt = con.prepareStatement(insertSchemaVersionScript)) {
+                    pstmt.setInt(1, version);
+                    pstmt.executeUpdate();
+                }
+                con.commit();
+            } catch (SQLException ex) {
+                con.rollback();
+                throw new SQLException("Schema version " + version + " isn't applied: "
+                        + ex.getMessage(), ex.getSQLState(), ex);
+            }
+        }
+        return Math.max(0, VERSION - current);
+    }
+
+    /**
+     * @param con connection to database.
+     * @return the last applied version or 0 if no version is applied.
+     * @throws SQLException
+     */
+    public int currentVersion(Connection con) throws SQLException {
+        try (Statement stmt = con.createStatement();
+                ResultSet result = stmt.executeQuery(selectSchemaVersionScript)) {
+            return result.next() ? result.getInt(1) : 0;
+        }
+    }
+
+    private void execute(Statement stmt, String sql) throws SQLException {
+        try {
+            stmt.executeUpdate(sql);
+        } catch (SQLException ex) {
+            if (!ALREADY_EXISTS.equals(ex.getSQLState())) {
+                throw ex;
+            }
+            LOG.info(() -> "skip existing object: " + ex.getMessage());
+        }
+    }
+
+    private List<String> statements(int version) throws IOException {
+        Properties schema = new Configuration(JHelp.SCRIPT_PATH + "schema" + version + ".sql");
+        List<String> result = new ArrayList<>();
+        for (int i = 1; schema.getProperty("script" + i) != null; ++i) {
+            result.add(schema.getProperty("script" + i));
+        }
+        return result;
+    }
+
+    private static String script(String fileName) throws IOException {
+        return new Configuration(JHelp.SCRIPT_PATH + fileName).getProperty("script");
+    }
+}
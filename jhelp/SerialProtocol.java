@@ -0,0 +1,73 @@
+/*
+ * SerialProtocol.java
+ */
+package jhelp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+
+/**
+ * Legacy protocol which transports {@link jhelp.Data} objects by Java
+ * serialization. The protocol is kept for clients which don't support
+ * {@link jhelp.BinaryProtocol}.
+ */
+public class SerialProtocol implements WireProtocol {
+
+    /**
+     * Name of the protocol in configuration files.
+     */
+    public static final String NAME = "serial";
+
+    private ObjectInputStream input;
+    private ObjectOutputStream output;
+
+    /**
+     * Creates a new instance of <code>SerialProtocol</code>. Stream header is
+     * sent before the header of the peer is read, so both sides may create
+     * the protocol at the same time.
+     *
+     * @param in input stream of the connection.
+     * @param out output stream of the connection.
+     * @throws IOException if stream header can't be sent or read.
+     */
+    public SerialProtocol(InputStream in, OutputStream out) throws IOException {
+        output = new ObjectOutputStream(out);
+        output.flush();
+        input = new ObjectInputStream(in);
+    }
+
+    @Override
+    public Data read() throws IOException {
+        try {
+            return (Data) input.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            InvalidObjectException ioe = new InvalidObjectException(ex.getMessage());
+            ioe.initCause(ex);
+            throw ioe;
+        }
+    }
+
+    /**
+     * Method writes object to the connection. The stream is reset after every
+     * object, so changed objects are sent completely, and the stream doesn't
+     * keep references to sent objects.
+     *
+     * @param data object to send.
+     * @throws IOException if the object can't be sent.
+     */
+    @Override
+    public synchronized void write(Data data) throws IOException {
+        output.writeObject(data);
+        output.flush();
+        output.reset();
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+}
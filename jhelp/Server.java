@@ -1,214 +1,712 @@
-/*
- * Server.java
- *
- */
-package jhelp;
-
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import static java.lang.System.err;
-import java.net.ServerSocket;
-import java.net.Socket;
-import java.util.Properties;
-
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
-
-/**
- * This class sets a network connection between end client's objects of
- * {@link jhelp.Client} type and single {@link jhelp.ServerDb} object.
- *
- * @author <strong >Y.D.Zakovryashin, 2009</strong>
- * @version 1.0
- * @see jhelp.Client
- * @see jhelp.ClientThread
- * @see jhelp.ServerDb
- */
-public class Server extends Thread implements JHelp {
-
-    private ServerSocket serverSocket;    
-    private Socket clientSocket;
-    private int port;
-    private int dbPort;
-    private Properties commonConfig;
-    private ServerDb db;
-    boolean clientSession = true;
-
-
-    /**
-     * Creates a new instance of Server
-     */
-    public Server() {
-        this(JHelp.DEFAULT_SERVER_PORT, JHelp.DEFAULT_DATABASE_PORT);
-    }
-
-    /**
-     *
-     * @param port
-     * @param dbPort
-     */
-    public Server(int port, int dbPort) {
-        this.port = port;
-        this.dbPort = dbPort;
-        db = new ServerDb(dbPort);
-    }
-
-    /**
-     *
-     * @param args
-     */
-    public static void main(String[] args) {
-        System.out.println("SERVER: main");
-        Server server = new Server();
-        if (server.connect() == JHelp.OK) {
-            server.start();
-        }
-    }
-
-    /**
-     * The method opens the client socket, creates a new thread
-     * {@link jhelp.ClientThread} to which the client socket transfers
-     */
-    @Override
-    public void run() {
-        System.out.println("SERVER run");
-        try (ServerSocket server = new ServerSocket(port)) {
-            while (clientSession) {
-                try {
-                    Socket socket = server.accept();
-                    clientSocket = socket;
-                    serverSocket = server;
-                    ClientThread cThread = new ClientThread(this, socket);
-                    if(cThread.connect() == JHelp.OK) {
-                        Thread tr = new Thread(cThread);
-                        tr.start();
-                    } else {
-                        throw new IOException("Error of opening stream");
-                    }
-                } catch (IOException ex) {
-                    ex.printStackTrace(err);
-                    showErrorMessage(ex.getMessage());
-                    disconnect();
-                }
-            }
-        } catch (IOException ex) {
-            showErrorMessage("Open server socket error: " + ex.getMessage());
-            disconnect();
-        }
-
-    }
-
-    /**
-     * The method sets connection to database ({@link jhelp.ServerDb} object)
-     * and create {@link java.net.ServerSocket} object for waiting of client's
-     * connection requests. This method uses parameters from a configuration file
-     * for connection.
-     *
-     * @return error code. The method returns {@link JHelp#OK} if streams are
-     * successfully opened, otherwise the method returns {@link JHelp#ERROR}.
-     */
-    @Override
-    public int connect() {
-        System.out.println("SERVER: connect");
-        commonConfig = initConfig(CONFIG_PATH + "server.cfg");
-        port = Integer.valueOf(commonConfig.getProperty("port"));
-        dbPort = Integer.valueOf(commonConfig.getProperty("dbPort"));
-        return OK;
-    }
-
-    /**
-     * The method sets connection to database ({@link jhelp.ServerDb} object)
-     * and create {@link java.net.ServerSocket} object for waiting of client's
-     * connection requests.
-     *
-     * @param args specifies properties of connection.
-     * @return error code. The method returns {@link JHelp#OK} if connection are
-     * openeds uccessfully, otherwise the method returns {@link JHelp#ERROR}.
-     */
-    @Override
-    public int connect(String[] args) {
-        System.out.println("SERVER: connect");
-        port = Integer.valueOf(args[0]);
-        dbPort = Integer.valueOf(args[1]);
-        return OK;
-    }
-
-    /**
-     * Transports initial {@link Data} object from {@link ClientThread} object
-     * to {@link ServerDb} object and returns modified {@link Data} object to
-     * {@link ClientThread} object.
-     *
-     * @param data Initial {@link Data} object which was obtained from client
-     * application.
-     * @return modified {@link Data} object
-     */
-    @Override
-    synchronized public Data getData(Data data) {
-        System.out.println("SERVER:getData");
-        return db.getData(data);
-    }
-
-    /**
-     * The method closes connection with database.
-     *
-     * @return error code. The method returns {@link JHelp#OK} if a connection
-     * with database ({@link ServerDb} object) closed successfully, otherwise
-     * the method returns {@link JHelp#ERROR} or any error code.
-     */
-    @Override
-    public int disconnect() {
-        System.out.println("SERVER: disconnect");
-        clientSession = false;
-        try {            
-            if (serverSocket != null && serverSocket.isClosed() == false) {
-                serverSocket.close();
-            }
-            if (clientSocket != null && clientSocket.isClosed() == false) {
-                clientSocket.close();
-            }
-            if (db != null) {
-                db.disconnect();
-            }
-        } catch (IOException ex) {
-            ex.printStackTrace(err);
-            showErrorMessage("Server disconnect error: " + ex.getMessage());
-            
-        }
-        return JHelp.DISCONNECT;
-    }
-    
-    /**
-     * The method creates a Properties object {@link jhelp.Configuration}
-     * for loading configuration parameters from a configuration file.
-     * 
-     * @param fileName - name of a configuration file
-     * @return Properties object
-     */
-    private Properties initConfig(String fileName) {
-        Properties commonConfig = null;
-        try {
-            commonConfig = new Configuration(fileName);
-        } catch (FileNotFoundException fe) {
-            showErrorMessage("Configuration file " + fileName +
-                             " doesn't exist\n" + fe.getMessage());
-            disconnect();
-        } catch (IOException ie) {
-            showErrorMessage(ie.getMessage());
-            disconnect();
-        }
-        return commonConfig;
-    }
-
-    private void showErrorMessage(String message) {
-        JFrame errorWindow = new JFrame();
-        errorWindow.setAlwaysOnTop(true);
-        StackTraceElement ste = Thread.currentThread().getStackTrace()[2];
-        JOptionPane.showMessageDialog(errorWindow,
-                "Server disconnect error: " + message  + 
-                        "\nClass: " + ste.getClassName()+ 
-                        "\nMethod " + ste.getMethodName() +
-                             "(): " + ste.getLineNumber(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-    }
-}
+/*
+ * Server.java
+ *
+ */
+package jhelp;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * This class sets a network connection between end client's objects of
+ * {@link jhelp.Client} type and single {@link jhelp.ServerDb} object.
+ *
+ * @author <strong >Y.D.Zakovryashin, 2009</strong>
+ * @version 1.0
+ * @see jhelp.Client
+ * @see jhelp.ClientThread
+ * @see jhelp.ServerDb
+ */
+public class Server extends Thread implements JHelp {
+
+    private static final Log LOG = Log.getLog(Server.class);
+
+    private ServerSocket serverSocket;    
+    private Socket clientSocket;
+    private int port;
+    private int dbPort;
+    private Properties commonConfig;
+    private ServerDb db;
+    private ErrorReporter errors = ErrorReporter.getInstance();
+    private Metrics metrics = new Metrics();
+    private MetricsServer metricsServer;
+    private StripedLock locks = new StripedLock(DEFAULT_LOCK_STRIPES);
+    private ResultCache cache;
+    private PrefixIndex prefixIndex;
+    private boolean prefixSearch;
+    private int completionLimit = 10;
+    private int fuzzyDistance = 2;
+    private int fuzzyLimit = 10;
+    private boolean suggest;
+    private FullTextIndex fullTextIndex;
+    private boolean fullTextSearch;
+    private int searchLimit = 20;
+    private ClientExecutor workers;
+    private ClientExecutor requests;
+    private NioServer nioServer;
+    private String frontend = BLOCKING;
+    private int eventLoops = 2;
+    private int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private boolean legacyProtocol = true;
+    private int maxInFlight = 32;
+    boolean clientSession = true;
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+    /**
+     * Front end with thread per client connection.
+     */
+    public static final String BLOCKING = "blocking";
+    /**
+     * Non-blocking front end of {@link NioServer} type.
+     */
+    public static final String NIO = "nio";
+    private static final int DEFAULT_IDLE_TIMEOUT = 60000;
+    private static final int DEFAULT_MAX_CONNECTIONS = 1024;
+
+
+    /**
+     * Creates a new instance of Server
+     */
+    public Server() {
+        this(JHelp.DEFAULT_SERVER_PORT, JHelp.DEFAULT_DATABASE_PORT);
+    }
+
+    /**
+     *
+     * @param port
+     * @param dbPort
+     */
+    public Server(int port, int dbPort) {
+        this.port = port;
+        this.dbPort = dbPort;
+    }
+
+    /**
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        LOG.info("main");
+        Server server = new Server();
+        if (server.connect() == JHelp.OK) {
+            server.start();
+        }
+    }
+
+    /**
+     * The method opens the client socket, creates a new
+     * {@link jhelp.ClientThread} object to which the client socket transfers
+     * and passes it to the executor of client connections. If
+     * {@link #NIO} front end is configured the method runs
+     * {@link NioServer} object instead.
+     */
+    @Override
+    public void run() {
+        LOG.info("run");
+        if (workers == null) {
+            workers = new ClientExecutor("worker", new Properties(),
+                    ClientExecutor.SESSION, DEFAULT_MAX_CONNECTIONS);
+        }
+        if (NIO.equals(frontend)) {
+            if (requests == null) {
+                requests = new ClientExecutor("request", new Properties());
+            }
+            nioServer = new NioServer(this, port, eventLoops, requests);
+            nioServer.run();
+            return;
+        }
+        try (ServerSocket server = new ServerSocket(port)) {
+            serverSocket = server;
+            while (clientSession) {
+                try {
+                    Socket socket = server.accept();
+                    clientSocket = socket;
+                    execute(new ClientThread(this, socket), socket);
+                } catch (IOException ex) {
+                    errors.report("Accept client connection error", ex);
+                    disconnect();
+                }
+            }
+        } catch (IOException ex) {
+            errors.report("Open server socket error: " + ex.getMessage());
+            disconnect();
+        }
+
+    }
+
+    private void execute(ClientThread cThread, Socket socket) throws IOException {
+        try {
+            workers.execute(cThread);
+        } catch (RejectedExecutionException ex) {
+            LOG.warn(() -> "connection rejected, " + workers);
+            socket.close();
+        }
+    }
+
+    /**
+     * The method returns time in milliseconds after which an idle client
+     * connection is closed.
+     *
+     * @return idle timeout of client connections.
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * The method returns maximum number of identified requests of one client
+     * connection which are executed at once.
+     *
+     * @return maximum number of requests in flight per connection.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * The method shows whether clients may use legacy
+     * {@link SerialProtocol}.
+     *
+     * @return <code>true</code> if legacy protocol is allowed.
+     */
+    public boolean isLegacyProtocol() {
+        return legacyProtocol;
+    }
+
+    /**
+     * The method returns executor of requests decoded by {@link NioServer}
+     * and identified requests of {@link ClientThread} objects.
+     *
+     * @return executor of requests or <code>null</code> if the executor
+     * isn't used.
+     */
+    public ClientExecutor getRequests() {
+        return requests;
+    }
+
+    /**
+     * The method returns executor of client connections. The executor
+     * provides number of queued and rejected connections.
+     *
+     * @return executor of client connections.
+     */
+    public ClientExecutor getWorkers() {
+        return workers;
+    }
+
+    /**
+     * The method sets connection to database ({@link jhelp.ServerDb} object)
+     * and create {@link java.net.ServerSocket} object for waiting of client's
+     * connection requests. This method uses parameters from a configuration file
+     * for connection.
+     *
+     * @return error code. The method returns {@link JHelp#OK} if streams are
+     * successfully opened, otherwise the method returns {@link JHelp#ERROR}.
+     */
+    @Override
+    public int connect() {
+        commonConfig = initConfig(CONFIG_PATH + "server.cfg");
+        try {
+            Log.configure(commonConfig);
+        } catch (IOException ex) {
+            errors.report("Log file error: " + ex.getMessage());
+        }
+        LOG.info("connect");
+        port = Integer.valueOf(commonConfig.getProperty("port"));
+        dbPort = Integer.valueOf(commonConfig.getProperty("dbPort"));
+        if (!Boolean.valueOf(commonConfig.getProperty("headless", "true"))) {
+            errors.setSink(ErrorReporter.dialogSink());
+        }
+        locks = new StripedLock(Integer.valueOf(commonConfig.getProperty("lockStripes",
+                String.valueOf(DEFAULT_LOCK_STRIPES))));
+        workers = new ClientExecutor("worker", commonConfig, ClientExecutor.SESSION,
+                DEFAULT_MAX_CONNECTIONS);
+        idleTimeout = Integer.valueOf(commonConfig.getProperty("idleTimeout",
+                String.valueOf(DEFAULT_IDLE_TIMEOUT)));
+        legacyProtocol = Boolean.valueOf(commonConfig.getProperty("legacyProtocol", "true"));
+        maxInFlight = Integer.valueOf(commonConfig.getProperty("maxInFlight", "32"));
+        int cacheSize = Integer.valueOf(commonConfig.getProperty("cacheSize", "0"));
+        if (cacheSize > 0) {
+            cache = new ResultCache(cacheSize,
+                    Long.valueOf(commonConfig.getProperty("cacheTtl", "60000")));
+        }
+        prefixSearch = Boolean.valueOf(commonConfig.getProperty("prefixIndex", "false"));
+        completionLimit = Integer.valueOf(commonConfig.getProperty("completionLimit", "10"));
+        fuzzyDistance = Integer.valueOf(commonConfig.getProperty("fuzzyDistance", "2"));
+        fuzzyLimit = Integer.valueOf(commonConfig.getProperty("fuzzyLimit", "10"));
+        suggest = Boolean.valueOf(commonConfig.getProperty("didYouMean", "false"));
+        fullTextSearch = Boolean.valueOf(commonConfig.getProperty("fullTextIndex", "false"));
+        searchLimit = Integer.valueOf(commonConfig.getProperty("searchLimit", "20"));
+        frontend = commonConfig.getProperty("frontend", BLOCKING);
+        eventLoops = Integer.valueOf(commonConfig.getProperty("eventLoops", "2"));
+        requests = new ClientExecutor("request", commonConfig);
+        if (Boolean.valueOf(commonConfig.getProperty("metricsJmx", "false"))) {
+            metrics.registerMBeans();
+        }
+        int metricsPort = Integer.valueOf(commonConfig.getProperty("metricsPort", "0"));
+        if (metricsPort > 0) {
+            metricsServer = new MetricsServer(this);
+            try {
+                metricsServer.start(metricsPort);
+            } catch (IOException ex) {
+                errors.report("Metrics endpoint error: " + ex.getMessage());
+                metricsServer = null;
+            }
+        }
+        return connectDb();
+    }
+
+    /**
+     * The method sets connection to database ({@link jhelp.ServerDb} object)
+     * and create {@link java.net.ServerSocket} object for waiting of client's
+     * connection requests.
+     *
+     * @param args specifies properties of connection.
+     * @return error code. The method returns {@link JHelp#OK} if connection are
+     * openeds uccessfully, otherwise the method returns {@link JHelp#ERROR}.
+     */
+    @Override
+    public int connect(String[] args) {
+        LOG.info("connect");
+        port = Integer.valueOf(args[0]);
+        dbPort = Integer.valueOf(args[1]);
+        return connectDb();
+    }
+
+    /**
+     * The method creates {@link ServerDb} object and opens its pool of
+     * database connections.
+     *
+     * @return error code. The method returns {@link JHelp#OK} if database is
+     * ready, otherwise the method returns {@link JHelp#ERROR}.
+     */
+    private int connectDb() {
+        db = new ServerDb(dbPort);
+        if (db.connect() != JHelp.READY) {
+            return JHelp.ERROR;
+        }
+        if (cache != null) {
+            db.getEngine().addListener(cache);
+        }
+        if (prefixSearch) {
+            loadPrefixIndex();
+        }
+        if (fullTextSearch) {
+            loadFullTextIndex();
+        }
+        return JHelp.OK;
+    }
+
+    /**
+     * The method builds index of terms for {@link JHelp#COMPLETE} requests
+     * from the storage and subscribes it to changes of the storage.
+     */
+    private void loadPrefixIndex() {
+        long start = System.nanoTime();
+        prefixIndex = PrefixIndex.load(db.getEngine());
+        if (prefixIndex == null) {
+            errors.report("Prefix index isn't loaded, completion is disabled");
+            return;
+        }
+        db.getEngine().addListener(prefixIndex);
+        LOG.info(() -> "prefix index is loaded in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, terms: "
+                + prefixIndex.size() + ", bytes: " + prefixIndex.getMemoryBytes());
+    }
+
+    /**
+     * The method builds index of definitions for {@link JHelp#SEARCH}
+     * requests from the storage and subscribes it to changes of the storage.
+     */
+    private void loadFullTextIndex() {
+        long start = System.nanoTime();
+        fullTextIndex = FullTextIndex.load(db.getEngine());
+        if (fullTextIndex == null) {
+            errors.report("Full-text index isn't loaded, search is disabled");
+            return;
+        }
+        db.getEngine().addListener(fullTextIndex);
+        LOG.info(() -> "full-text index is loaded in "
+                + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+                + " ms, definitions: " + fullTextIndex.size() + ", tokens: "
+                + fullTextIndex.getTokens() + ", bytes: " + fullTextIndex.getMemoryBytes());
+    }
+
+    /**
+     * Transports initial {@link Data} object from {@link ClientThread} object
+     * to {@link ServerDb} object and returns modified {@link Data} object to
+     * {@link ClientThread} object. The method may be called by many threads at
+     * once. Requests for the same normalized term are ordered by a striped
+     * lock: reading requests run concurrently, while a changing request
+     * waits for all other requests with the term. {@link JHelp#INSERT}
+     * locks the term of the request, {@link JHelp#UPDATE} and
+     * {@link JHelp#DELETE} lock terms which own the changed definitions,
+     * whatever key the client sends. Results of {@link JHelp#SELECT}
+     * requests are cached, changes of the storage invalidate cached results.
+     * If nothing is found by {@link JHelp#SELECT} request, similar terms may
+     * be suggested in the result. An unexpected failure of
+     * the request is reported to {@link ErrorReporter} and returned as
+     * {@link JHelp#ERROR} status.
+     *
+     * @param data Initial {@link Data} object which was obtained from client
+     * application.
+     * @return modified {@link Data} object
+     */
+    @Override
+    public Data getData(Data data) {
+        LOG.debug("getData");
+        if (data.getOperation() == JHelp.COMPLETE) {
+            return complete(data);
+        }
+        if (data.getOperation() == JHelp.SEARCH) {
+            return search(data);
+        }
+        if (data.getOperation() == JHelp.FUZZY) {
+            return fuzzy(data);
+        }
+        String term = Terms.normalize(data.getKey().getItem());
+        Lock lock = lock(data, term);
+        int operation = data.getOperation();
+        Data result = data;
+        lock.lock();
+        try {
+            if (cache == null) {
+                result = query(data);
+            } else if (operation == JHelp.SELECT) {
+                result = select(term, data);
+            } else {
+                result = query(data);
+            }
+            if (operation == JHelp.SELECT && result.getOperation() == JHelp.SELECT) {
+                suggest(result);
+            }
+            return result;
+        } catch (RuntimeException ex) {
+            errors.report("Request " + operation + " failed", ex);
+            data.setOperation(JHelp.ERROR);
+            result = data;
+            return data;
+        } finally {
+            lock.unlock();
+            metrics.forOperation(operation).count(result.getOperation() == JHelp.ERROR);
+        }
+    }
+
+    /**
+     * The method answers {@link JHelp#COMPLETE} request by terms starting
+     * with the key of the request. The request doesn't wait for locks and
+     * doesn't touch the database. If the prefix index is disabled, the
+     * request is answered with {@link JHelp#ERROR} status.
+     */
+    private Data complete(Data data) {
+        long start = System.nanoTime();
+        if (prefixIndex == null) {
+            data.setOperation(JHelp.ERROR);
+        } else {
+            data.setValues(prefixIndex.complete(data.getKey().getItem(), completionLimit));
+            data.setOperation(JHelp.ORIGIN);
+        }
+        metrics.record(JHelp.COMPLETE, Metrics.Stage.DB, start);
+        metrics.forOperation(JHelp.COMPLETE).count(data.getOperation() == JHelp.ERROR);
+        return data;
+    }
+
+    /**
+     * The method answers {@link JHelp#SEARCH} request by definitions
+     * containing words of the key, the most relevant definition first. Every
+     * item contains the term and the definition separated by
+     * <code>" - "</code>. The request doesn't wait for locks, found
+     * definitions are read from the storage. If the full-text index is
+     * disabled, the request is answered with {@link JHelp#ERROR} status.
+     */
+    private Data search(Data data) {
+        long start = System.nanoTime();
+        if (fullTextIndex == null) {
+            data.setOperation(JHelp.ERROR);
+        } else {
+            int[] ids = fullTextIndex.search(data.getKey().getItem(), searchLimit);
+            Map<Integer, Item> found = new HashMap<>();
+            int status = db.getEngine().fetch(ids, (termId, term, definitions) -> {
+                for (Item definition : definitions) {
+                    definition.setItem(term + " - " + definition.getItem());
+                    found.put(definition.getId(), definition);
+                }
+            });
+            List<Item> values = new ArrayList<>(ids.length);
+            for (int id : ids) {
+                if (found.containsKey(id)) {
+                    values.add(found.get(id));
+                }
+            }
+            data.setValues(values.toArray(new Item[values.size()]));
+            data.setCursor(0);
+            data.setOperation(status == JHelp.OK ? JHelp.ORIGIN : JHelp.ERROR);
+        }
+        metrics.record(JHelp.SEARCH, Metrics.Stage.DB, start);
+        metrics.forOperation(JHelp.SEARCH).count(data.getOperation() == JHelp.ERROR);
+        return data;
+    }
+
+    /**
+     * The method answers {@link JHelp#FUZZY} request by terms close to the
+     * key, the closest term first. If the prefix index is disabled, the
+     * request is answered with {@link JHelp#ERROR} status.
+     */
+    private Data fuzzy(Data data) {
+        long start = System.nanoTime();
+        if (prefixIndex == null) {
+            data.setOperation(JHelp.ERROR);
+        } else {
+            String key = data.getKey().getItem();
+            data.setValues(prefixIndex.fuzzy(key, maxDistance(key), fuzzyLimit));
+            data.setOperation(JHelp.ORIGIN);
+        }
+        metrics.record(JHelp.FUZZY, Metrics.Stage.DB, start);
+        metrics.forOperation(JHelp.FUZZY).count(data.getOperation() == JHelp.ERROR);
+        return data;
+    }
+
+    /**
+     * The method puts terms close to the key of {@link JHelp#SELECT} request
+     * which found nothing into the result with {@link JHelp#FUZZY} state.
+     * The status of the request isn't changed.
+     */
+    private void suggest(Data result) {
+        if (!suggest || prefixIndex == null) {
+            return;
+        }
+        String key = result.getKey().getItem();
+        Item[] similar = prefixIndex.fuzzy(key, maxDistance(key), fuzzyLimit);
+        for (Item item : similar) {
+            item.setState(JHelp.FUZZY);
+        }
+        result.setValues(similar);
+    }
+
+    /**
+     * The method returns allowed number of typos in the key: one typo per
+     * three characters, at least one and no more than
+     * <code>fuzzyDistance</code> parameter.
+     */
+    private int maxDistance(String key) {
+        return Math.min(fuzzyDistance, Math.max(1, Terms.normalize(key).length() / 3));
+    }
+
+    /**
+     * The method passes the request to {@link ServerDb} object and records
+     * duration of {@link Metrics.Stage#DB} stage.
+     */
+    private Data query(Data data) {
+        int operation = data.getOperation();
+        long start = System.nanoTime();
+        try {
+            return db.getData(data);
+        } finally {
+            metrics.record(operation, Metrics.Stage.DB, start);
+        }
+    }
+
+    private Data select(String term, Data data) {
+        Data cached = cache.get(term);
+        CacheEvent.lookup(data, cached);
+        if (cached != null) {
+            cached.getKey().setItem(data.getKey().getItem());
+            cached.setRequestId(data.getRequestId());
+            return cached;
+        }
+        long version = cache.version();
+        Data result = query(data);
+        if (result.getOperation() == JHelp.ORIGIN) {
+            cache.put(term, result, version);
+        }
+        return result;
+    }
+
+    /**
+     * The method returns cache of {@link JHelp#SELECT} results. The cache
+     * provides numbers of hits, misses and evictions.
+     *
+     * @return cache of results or <code>null</code> if the cache is disabled.
+     */
+    public ResultCache getCache() {
+        return cache;
+    }
+
+    /**
+     * The method returns index of terms used by {@link JHelp#COMPLETE}
+     * requests.
+     *
+     * @return prefix index or <code>null</code> if the index is disabled.
+     */
+    public PrefixIndex getPrefixIndex() {
+        return prefixIndex;
+    }
+
+    /**
+     * The method returns index of definitions used by {@link JHelp#SEARCH}
+     * requests.
+     *
+     * @return full-text index or <code>null</code> if the index is disabled.
+     */
+    public FullTextIndex getFullTextIndex() {
+        return fullTextIndex;
+    }
+
+    /**
+     * The method returns latency histograms and counters of requests.
+     *
+     * @return metrics of requests.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * The method returns pool of database connections.
+     *
+     * @return connection pool or <code>null</code> if database isn't
+     * connected.
+     */
+    public ConnectionPool getPool() {
+        return db == null ? null : db.getPool();
+    }
+
+    /**
+     * The method returns group committer of changing requests.
+     *
+     * @return write coalescer or <code>null</code> if group commit is
+     * disabled or database isn't connected.
+     */
+    public WriteCoalescer getWriteCoalescer() {
+        return db == null ? null : db.getWriteCoalescer();
+    }
+
+    /**
+     * The method returns filter of terms absent in the dictionary.
+     *
+     * @return term filter or <code>null</code> if the filter is disabled or
+     * database isn't connected.
+     */
+    public TermFilter getTermFilter() {
+        return db == null ? null : db.getTermFilter();
+    }
+
+    /**
+     * The method returns index of terms used by {@link JHelp#SELECT},
+     * {@link JHelp#NEXT} and {@link JHelp#PREVIOUS} requests.
+     *
+     * @return substring index or <code>null</code> if the index is disabled
+     * or database isn't connected.
+     */
+    public SubstringIndex getSubstringIndex() {
+        return db == null ? null : db.getSubstringIndex();
+    }
+
+    /**
+     * The method returns lock of the request. Definitions changed by
+     * {@link JHelp#UPDATE} and {@link JHelp#DELETE} requests may belong to
+     * any terms, so their terms are read from the storage; a definition
+     * never moves to another term, so the terms can't change before the
+     * lock is taken. If the terms can't be read, the lock of the key is
+     * used.
+     */
+    private Lock lock(Data data, String term) {
+        int operation = data.getOperation();
+        if (!isChanging(operation)) {
+            return locks.readLock(term);
+        }
+        Item[] values = data.getValues();
+        if (operation == JHelp.INSERT || values == null || db == null) {
+            return locks.writeLock(term);
+        }
+        int[] ids = new int[values.length];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = values[i].getId();
+        }
+        Set<String> terms = new HashSet<>();
+        int status = db.getEngine().fetch(ids,
+                (termId, text, definitions) -> terms.add(Terms.normalize(text)));
+        if (status != JHelp.OK) {
+            return locks.writeLock(term);
+        }
+        return locks.writeLock(terms);
+    }
+
+    private boolean isChanging(int operation) {
+        return operation == JHelp.INSERT || operation == JHelp.UPDATE
+                || operation == JHelp.DELETE;
+    }
+
+    /**
+     * The method closes connection with database.
+     *
+     * @return error code. The method returns {@link JHelp#OK} if a connection
+     * with database ({@link ServerDb} object) closed successfully, otherwise
+     * the method returns {@link JHelp#ERROR} or any error code.
+     */
+    @Override
+    public int disconnect() {
+        LOG.info("disconnect");
+        clientSession = false;
+        try {            
+            if (serverSocket != null && serverSocket.isClosed() == false) {
+                serverSocket.close();
+            }
+            if (clientSocket != null && clientSocket.isClosed() == false) {
+                clientSocket.close();
+            }
+            if (nioServer != null) {
+                nioServer.close();
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            metrics.unregisterMBeans();
+            if (workers != null) {
+                workers.shutdown();
+            }
+            if (requests != null) {
+                requests.shutdown();
+            }
+            if (db != null) {
+                db.disconnect();
+            }
+        } catch (IOException ex) {
+            errors.report("Server disconnect error: " + ex.getMessage(), ex);
+        }
+        return JHelp.DISCONNECT;
+    }
+    
+    /**
+     * The method creates a Properties object {@link jhelp.Configuration}
+     * for loading configuration parameters from a configuration file.
+     * 
+     * @param fileName - name of a configuration file
+     * @return Properties object
+     */
+    private Properties initConfig(String fileName) {
+        Properties commonConfig = null;
+        try {
+            commonConfig = new Configuration(fileName);
+        } catch (FileNotFoundException fe) {
+            errors.report("Configuration file " + fileName +
+                             " doesn't exist\n" + fe.getMessage());
+            disconnect();
+        } catch (IOException ie) {
+            errors.report(ie.getMessage());
+            disconnect();
+        }
+        return commonConfig;
+    }
+}
@@ -1,465 +1,352 @@
-/*
- * ServerDb.java
- *
- */
-package jhelp;
-
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.Properties;
-import javax.swing.JFrame;
-import javax.swing.JOptionPane;
-
-/**
- * This class presents server directly working with database. The complete
- * connection string should take the form of:<br>
- * <code><pre>
- *     jdbc:subprotocol://servername:port/datasource:user=username:password=password
- * </pre></code> Sample for using MS Access data source:<br>
- * <code><pre>
- *  private static final String accessDBURLPrefix
- *      = "jdbc:odbc:Driver={Microsoft Access Driver (*.mdb)};DBQ=";
- *  private static final String accessDBURLSuffix
- *      = ";DriverID=22;READONLY=false}";
- *  // Initialize the JdbcOdbc Bridge Driver
- *  try {
- *         Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
- *      } catch(ClassNotFoundException e) {
- *         System.err.println("JdbcOdbc Bridge Driver not found!");
- *      }
- *
- *  // Example: method for connection to a Access Database
- *  public Connection getAccessDBConnection(String filename)
- *                           throws SQLException {
- *       String databaseURL = accessDBURLPrefix + filename + accessDBURLSuffix;
- *       return DriverManager.getConnection(databaseURL, "", "");
- *   }
- * </pre></code>
- *
- * @author <strong >Y.D.Zakovryashin, 2009</strong>
- */
-public class ServerDb implements JHelp {
-
-    private Connection connection;
-    private int port;
-    private String dbName;
-    private String user;
-    private String password;
-    private Properties commonConfig;
-    private String selectDefinitionScript;
-    private String insertTerminScript;
-    private String selectTerminScript;
-    private String deleteTerminScript;
-    private String insertDefinitionScript;
-    private String updateDefinitionScript;
-    private String deleteDefinitionScript;
-    private String countDefinitionScript;
-    private String connectString;
-    private String driver;
-
-    {
-        commonConfig = initConfig(CONFIG_PATH + "serverDb.cfg");
-        selectDefinitionScript = initConfig(SCRIPT_PATH + "selectDefinition.sql").getProperty("script");
-        insertTerminScript = initConfig(SCRIPT_PATH + "insertTermin.sql").getProperty("script");
-        selectTerminScript = initConfig(SCRIPT_PATH + "selectTermin.sql").getProperty("script");
-        deleteTerminScript = initConfig(SCRIPT_PATH + "deleteTermin.sql").getProperty("script");
-        insertDefinitionScript = initConfig(SCRIPT_PATH + "insertDefinition.sql").getProperty("script");
-        updateDefinitionScript = initConfig(SCRIPT_PATH + "updateDefinition.sql").getProperty("script");
-        deleteDefinitionScript = initConfig(SCRIPT_PATH + "deleteDefinition.sql").getProperty("script");
-        countDefinitionScript = initConfig(SCRIPT_PATH + "countDefinition.sql").getProperty("script");
-        user = commonConfig.getProperty("user");
-        password = commonConfig.getProperty("password");
-        dbName = commonConfig.getProperty("dbName");
-        connectString = commonConfig.getProperty("url") + ":" + port + "/" + dbName;
-        driver = commonConfig.getProperty("driver");
-    }
-
-    /**
-     * Creates a new instance of <code>ServerDb</code> with default parameters.
-     * Default parameters are:<br>
-     * <ol>
-     * <li><code>ServerDb</code> host is &laquo;localhost&raquo;;</li>
-     * <li>{@link java.net.ServerSocket} is opened on
-     * {@link jhelp.JHelp#DEFAULT_DATABASE_PORT};</li>
-     * </ol>
-     */
-    public ServerDb() {
-        this(DEFAULT_DATABASE_PORT);
-        System.out.println("SERVERDb: default constructor");
-    }
-
-    /**
-     * Constructor creates new instance of <code>ServerDb</code>.
-     *
-     * @param port defines port for {@link java.net.ServerSocket} object.
-     */
-    public ServerDb(int port) {
-        this.port = port;
-        try {
-            Class.forName(driver);
-            System.out.println("SERVERDb: Server Constructed");
-        } catch (ClassNotFoundException e) {
-            showErrorMessage("Jdbc Client Driver not found! " + e.getMessage());
-            System.exit(0);
-        }
-    }
-
-    /**
-     * Constructor creates new instance of <code>ServerDb</code>.
-     *
-     * @param args array of {@link java.lang.String} type contains connection
-     * parameters.
-     */
-    public ServerDb(String[] args) {
-        this(Integer.valueOf(args[0]));
-    }
-
-    /**
-     * Start method for <code>ServerDb</code> application.
-     *
-     * @param args array of {@link java.lang.String} type contains connection
-     * parameters.
-     */
-    public static void main(String[] args) throws SQLException {
-        System.out.println("SERVERDb: main");
-        ServerDb server = new ServerDb();
-        if (server.connect(args) == JHelp.READY) {
-            server.run();
-        }
-
-    }
-
-    /**
-     * Method defines job cycle for client request processing.
-     */
-    private void run() {
-        System.out.println("SERVERDb: run");
-    }
-
-    /**
-     * Method returns result of client request to a database.
-     *
-     * @param data object of {@link jhelp.Data} type with request to database.
-     * @return object of {@link jhelp.Data} type with results of request to a
-     * database.
-     * @see Data
-     * @since 1.0
-     */
-    @Override
-    public Data getData(Data data) {
-        Data newData = data;
-        int operation = data.getOperation();
-        switch (operation) {
-            case JHelp.SELECT:
-                newData = selectData(data);
-                break;
-            case JHelp.INSERT:
-                newData = insertData(data);
-                break;
-            case JHelp.UPDATE:
-                newData = updateData(data);
-                break;
-            case JHelp.DELETE:
-                newData = deleteData(data);
-        }
-        return newData;
-    }
-
-    private Data selectData(Data data) {
-        try (Connection con = DriverManager.getConnection(connectString, user, password)) {
-            connection = con;
-            String term = data.getKey().getItem();
-            PreparedStatement pstmt = con.prepareStatement(selectDefinitionScript);
-            ResultSet result = queryData(pstmt, term);
-            while (result.next()) {
-                Item definition = new Item();
-                definition.setId(result.getInt("id"));
-                definition.setItem(result.getString("definition"));
-                data.setValue(result.getRow() - 1, definition);
-                data.getKey().setId(result.getInt("trem_id"));
-            }
-            if (data.getKey().getId() > 0) {
-                data.setOperation(JHelp.ORIGIN);
-            }
-            if (!result.isClosed()) {
-                result.close();
-            }
-            if (!pstmt.isClosed()) {
-                pstmt.close();
-            }
-        } catch (SQLException ex) {
-            showErrorMessage("SQL-select error: " + ex.getMessage());
-        }
-        return data;
-    }
-
-    private Data insertData(Data data) {
-        try (Connection con = DriverManager.getConnection(connectString, user, password)) {
-            connection = con;
-            int defId = -1;
-            int termId = -1;
-            String term = data.getKey().getItem();
-            PreparedStatement pstmt = con.prepareStatement(selectTerminScript);
-            ResultSet result = queryData(pstmt, term);
-            while (result.next()) {
-                termId = result.getInt("id");
-            }
-            if (termId < 0) {
-                termId = insertIntoTblTerms(term);
-            }
-            if (termId > 0) {
-                for (Item item : data.getValues()) {
-                    if (item.getState() != JHelp.INSERT) {
-                        continue;
-                    }
-                    String definition = item.getItem();
-                    defId = insertIntoTblDefinitions(definition, termId);
-                    if (defId > 0) {
-                        data.getKey().setId(termId);
-                        item.setId(defId);
-                        item.setState(JHelp.ORIGIN);
-                        data.setOperation(JHelp.ORIGIN);
-                    } else {
-                        showErrorMessage("Definition isn't inserted into Db");
-                    }
-                }
-            } else {
-                showErrorMessage("Termin isn't inserted into Db");
-            }
-            if (!result.isClosed()) {
-                result.close();
-            }
-            if (!pstmt.isClosed()) {
-                pstmt.close();
-            }
-        } catch (SQLException ex) {
-            showErrorMessage("SQL-insert error: " + ex.getMessage());
-        }
-        return data;
-    }
-
-    private Data updateData(Data data) {
-        try (Connection con = DriverManager.getConnection(connectString, user, password)) {
-            connection = con;
-            PreparedStatement pstmt = con.prepareStatement(updateDefinitionScript);
-            con.setAutoCommit(false);
-            for (Item item : data.getValues()) {
-                if (item.getState() != JHelp.UPDATE) {
-                    continue;
-                }
-                int defId = item.getId();
-                String newDef = item.getItem();
-                pstmt.setString(1, newDef);
-                pstmt.setInt(2, defId);
-                pstmt.addBatch();
-            }
-            int[] countRows = pstmt.executeBatch();
-            con.commit();
-            if (countRows[0] > 0) {
-                data.setOperation(JHelp.ORIGIN);
-                for (Item item : data.getValues()) {
-                    item.setState(JHelp.ORIGIN);
-                }
-            }
-            if (!pstmt.isClosed()) {
-                pstmt.close();
-            }
-        } catch (SQLException ex) {
-            showErrorMessage("SQL-update error: " + ex.getMessage());
-        }
-        return data;
-    }
-
-    private Data deleteData(Data data) {
-        try (Connection con = DriverManager.getConnection(connectString, user, password)) {
-            connection = con;
-            int deleteTerms = -1;
-            int countDefinitions = -1;
-            con.setAutoCommit(false);
-            PreparedStatement pstmt = con.prepareStatement(deleteDefinitionScript);
-            int termId = data.getKey().getId();
-            for (Item item : data.getValues()) {
-                if (item.getState() != JHelp.DELETE) {
-                    continue;
-                }
-                int defId = item.getId();
-                pstmt.setInt(1, defId);
-                pstmt.addBatch();
-            }
-            int[] deleteDef = pstmt.executeBatch();
-            con.commit();
-            pstmt = con.prepareStatement(countDefinitionScript);
-            pstmt.setInt(1, termId);
-            ResultSet result = pstmt.executeQuery();
-            while (result.next()) {
-                countDefinitions = result.getInt(1);
-            }
-            if (countDefinitions == 0) {
-                pstmt = con.prepareStatement(deleteTerminScript);
-                pstmt.setInt(1, termId);
-                deleteTerms = pstmt.executeUpdate();
-            }
-            con.commit();
-            if (deleteDef.length > 0 && deleteTerms != 0) {
-                for (Item item : data.getValues()) {
-                    if (item.getState() == JHelp.DELETE) {
-                        item.setState(JHelp.ORIGIN);
-                    }
-                }
-                data.setOperation(JHelp.ORIGIN);
-            }
-
-            if (!pstmt.isClosed()) {
-                pstmt.close();
-            }
-            if (!con.isClosed()) {
-                con.close();
-            }
-        } catch (SQLException ex) {
-            showErrorMessage("SQL-delete error: " + ex.getMessage());
-        }
-        return data;
-    }
-
-    /**
-     * The method finds data by term
-     * 
-     * @param pstmt - PreparedStatement object
-     * @param term - requested term
-     * @return - ResultSet object
-     * @throws SQLException 
-     */
-    private ResultSet queryData(PreparedStatement pstmt, String term) throws SQLException {
-        pstmt.setString(1, "%" + term + "%");
-        return pstmt.executeQuery();
-    }
-
-    private int insertIntoTblDefinitions(String definition, int id) throws SQLException {
-        int defId = -1;
-        PreparedStatement pstmt = connection.prepareStatement(insertDefinitionScript,
-                Statement.RETURN_GENERATED_KEYS);
-        pstmt.setString(1, definition);
-        pstmt.setInt(2, id);
-        int result = pstmt.executeUpdate();
-        if (result != 1) {
-            throw new SQLException("Error insert data into table tblDefinitions. ");
-        }
-        ResultSet generatedKeys = pstmt.getGeneratedKeys();
-        while (generatedKeys.next()) {
-            defId = (int) generatedKeys.getLong(1);
-        }
-        pstmt.close();
-        return defId;
-    }
-
-    private int insertIntoTblTerms(String term) throws SQLException {
-        int termId = -1;
-        PreparedStatement pstmt = connection.prepareStatement(insertTerminScript,
-                Statement.RETURN_GENERATED_KEYS);
-        pstmt.setString(1, term);
-        int result = pstmt.executeUpdate();
-        if (result != 1) {
-            throw new SQLException("Error insert data into table tblTerms. ");
-        }
-        ResultSet generatedKeys = pstmt.getGeneratedKeys();
-        while (generatedKeys.next()) {
-            termId = (int) generatedKeys.getLong(1);
-        }
-        pstmt.close();
-        return termId;
-    }
-
-    /**
-     *
-     * @return error code. The method returns {@link JHelp#OK} if streams are
-     * opened successfully, otherwise the method returns {@link JHelp#ERROR}.
-     */
-    @Override
-    public int connect() {
-        String[] args = {connectString, user, password};
-        return connect(args);       
-    }
-
-    /**
-     * Method sets connection to database and create
-     * {@link java.net.ServerSocket} object for waiting of client's connection
-     * requests.
-     *
-     * @return error code. Method returns {@link jhelp.JHelp#READY} in success
-     * case. Otherwise method return {@link jhelp.JHelp#ERROR} or error code.
-     */
-    @Override
-    public int connect(String[] args) {
-        System.out.println("SERVERDb: connect");
-        try (Connection con = DriverManager.getConnection(args[0], args[1], args[2])) {
-            connection = con;
-            System.out.println("SERVERDb: connect");
-
-        } catch (SQLException ex) {
-            showErrorMessage("Db connection error: " + ex.getMessage());
-            disconnect();
-            return JHelp.ERROR;
-        }
-        return JHelp.READY;
-    }
-
-    /**
-     * Method disconnects <code>ServerDb</code> object from a database and
-     * closes {@link java.net.ServerSocket} object.
-     *
-     * @return disconnect result. Method returns {@link #DISCONNECT} value, if
-     * the process ends successfully. Othewise the method returns error code,
-     * for example {@link #ERROR}.
-     * @see jhelp.JHelp#DISCONNECT
-     * @since 1.0
-     */
-    public int disconnect() {
-        System.out.println("SERVERDb: disconnect");
-        try {
-            if (connection != null && connection.isClosed() == false) {
-                System.out.println("close connection");
-                connection.close();
-            }
-        } catch (SQLException ex) {
-            System.out.println("SERVERDB: fail close connection");
-            showErrorMessage(ex.getMessage());
-        }
-        return JHelp.DISCONNECT;
-    }
-
-    /**
-     * The method creates a Properties object {@link jhelp.Configuration}
-     * for loading configuration parameters from a configuration file.
-     * 
-     * @param fileName - name of a configuration file
-     * @return Properties object
-     */
-    private Properties initConfig(String fileName) {
-        Properties commonConfig = null;
-        try {
-            commonConfig = new Configuration(fileName);
-        } catch (FileNotFoundException fe) {
-            showErrorMessage("Configuration file " + fileName + " doesn't exist\n" + fe.getMessage());
-            disconnect();
-        } catch (IOException ie) {
-            showErrorMessage(ie.getMessage());
-            disconnect();
-        }
-        return commonConfig;
-    }
-
-    private void showErrorMessage(String message) {
-        JFrame errorWindow = new JFrame();
-        errorWindow.setAlwaysOnTop(true);
-        JOptionPane.showMessageDialog(errorWindow,
-                "Server disconnect error: " + message,
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
-    }
-}
+/*
+ * ServerDb.java
+ *
+ */
+package jhelp;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.Properties;
+
+/**
+ * This class presents server directly working with database. The complete
+ * connection string should take the form of:<br>
+ * <code><pre>
+ *     jdbc:subprotocol://servername:port/datasource:user=username:password=password
+ * </pre></code> Sample for using MS Access data source:<br>
+ * <code><pre>
+ *  private static final String accessDBURLPrefix
+ *      = "jdbc:odbc:Driver={Microsoft Access Driver (*.mdb)};DBQ=";
+ *  private static final String accessDBURLSuffix
+ *      = ";DriverID=22;READONLY=false}";
+ *  // Initialize the JdbcOdbc Bridge Driver
+ *  try {
+ *         Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
+ *      } catch(ClassNotFoundException e) {
+ *         System.err.println("JdbcOdbc Bridge Driver not found!");
+ *      }
+ *
+ *  // Example: method for connection to a Access Database
+ *  public Connection getAccessDBConnection(String filename)
+ *                           throws SQLException {
+ *       String databaseURL = accessDBURLPrefix + filename + accessDBURLSuffix;
+ *       return DriverManager.getConnection(databaseURL, "", "");
+ *   }
+ * </pre></code>
+ *
+ * <p>
+ * Requests are served by {@link StorageEngine} chosen by <code>engine</code>
+ * parameter of <code>serverDb.cfg</code> file: {@link JdbcStorageEngine}
+ * works with the database described above, {@link MemoryStorageEngine}
+ * keeps the dictionary in memory of the server process,
+ * {@link LogStorageEngine} keeps it in a memory-mapped log file.
+ * <p>
+ * If <code>substringIndex</code> parameter is set, terms containing the
+ * requested term are found by {@link SubstringIndex} and only their
+ * definitions are read from the engine. Requests with wildcards or matching
+ * more than <code>substringMaxTerms</code> terms are passed to the engine
+ * as they are. The index is built on start and then follows only changes
+ * made by this server, so it must stay disabled if other servers write to
+ * the same database.
+ * <p>
+ * If <code>termFilter</code> parameter is set, {@link TermFilter} is
+ * checked first: a request for a term which no term of the dictionary
+ * may contain is answered with an empty page without the engine. Like the
+ * substring index, the filter follows only changes made by this server and
+ * must stay disabled if other servers write to the same database.
+ *
+ * @author <strong >Y.D.Zakovryashin, 2009</strong>
+ */
+public class ServerDb implements JHelp {
+
+    private static final Log LOG = Log.getLog(ServerDb.class);
+
+    /**
+     * Dictionary is kept in a relational database.
+     */
+    public static final String JDBC_ENGINE = "jdbc";
+    /**
+     * Dictionary is kept in memory of the server process.
+     */
+    public static final String MEMORY_ENGINE = "memory";
+    /**
+     * Dictionary is kept in a local append-only log file.
+     */
+    public static final String LOG_ENGINE = "log";
+    private Properties commonConfig;
+    private ErrorReporter errors = ErrorReporter.getInstance();
+    private StorageEngine engine;
+    private SubstringIndex substringIndex;
+    private boolean substringSearch;
+    private int substringMaxTerms;
+    private TermFilter termFilter;
+    private boolean filterTerms;
+    private long filterExpected;
+    private double filterFalsePositive;
+
+    {
+        commonConfig = initConfig(CONFIG_PATH + "serverDb.cfg");
+    }
+
+    /**
+     * Creates a new instance of <code>ServerDb</code> with default parameters.
+     * Default parameters are:<br>
+     * <ol>
+     * <li><code>ServerDb</code> host is &laquo;localhost&raquo;;</li>
+     * <li>{@link java.net.ServerSocket} is opened on
+     * {@link jhelp.JHelp#DEFAULT_DATABASE_PORT};</li>
+     * </ol>
+     */
+    public ServerDb() {
+        this(DEFAULT_DATABASE_PORT);
+        LOG.info("default constructor");
+    }
+
+    /**
+     * Constructor creates new instance of <code>ServerDb</code>.
+     *
+     * @param port defines port for {@link java.net.ServerSocket} object.
+     */
+    public ServerDb(int port) {
+        String name = commonConfig.getProperty("engine", JDBC_ENGINE);
+        if (MEMORY_ENGINE.equals(name)) {
+            engine = new MemoryStorageEngine(commonConfig);
+        } else if (LOG_ENGINE.equals(name)) {
+            engine = new LogStorageEngine(commonConfig);
+        } else {
+            engine = new JdbcStorageEngine(commonConfig, port);
+        }
+        substringSearch = Boolean.valueOf(commonConfig.getProperty("substringIndex", "false"));
+        substringMaxTerms = Integer.valueOf(commonConfig.getProperty("substringMaxTerms", "256"));
+        filterTerms = Boolean.valueOf(commonConfig.getProperty("termFilter", "false"));
+        filterExpected = Long.valueOf(commonConfig.getProperty("filterExpected", "1000000"));
+        filterFalsePositive = Double.valueOf(commonConfig.getProperty("filterFalsePositive", "0.01"));
+        LOG.info(() -> "server constructed, storage engine: " + name);
+    }
+
+    /**
+     * Constructor creates new instance of <code>ServerDb</code>.
+     *
+     * @param args array of {@link java.lang.String} type contains connection
+     * parameters.
+     */
+    public ServerDb(String[] args) {
+        this(Integer.valueOf(args[0]));
+    }
+
+    /**
+     * Start method for <code>ServerDb</code> application.
+     *
+     * @param args array of {@link java.lang.String} type contains connection
+     * parameters.
+     */
+    public static void main(String[] args) throws SQLException {
+        LOG.info("main");
+        ServerDb server = new ServerDb();
+        if (server.connect(args) == JHelp.READY) {
+            server.run();
+        }
+
+    }
+
+    /**
+     * Method defines job cycle for client request processing.
+     */
+    private void run() {
+        LOG.info("run");
+    }
+
+    /**
+     * Method returns result of client request to a database.
+     *
+     * @param data object of {@link jhelp.Data} type with request to database.
+     * @return object of {@link jhelp.Data} type with results of request to a
+     * database.
+     * @see Data
+     * @since 1.0
+     */
+    @Override
+    public Data getData(Data data) {
+        Data newData = data;
+        int operation = data.getOperation();
+        DbOperationEvent event = new DbOperationEvent();
+        event.begin();
+        switch (operation) {
+            case JHelp.SELECT:
+            case JHelp.NEXT:
+            case JHelp.PREVIOUS:
+                newData = select(data);
+                break;
+            case JHelp.INSERT:
+                newData = engine.insert(data);
+                break;
+            case JHelp.UPDATE:
+                newData = engine.update(data);
+                break;
+            case JHelp.DELETE:
+                newData = engine.delete(data);
+        }
+        event.commit(operation, newData);
+        return newData;
+    }
+
+    /**
+     * The method reads a page of definitions of terms found by the substring
+     * index, or by the engine if the index can't be used for the request.
+     * Requests for a term absent in the term filter get an empty page, which
+     * is right only while this server is the only writer of the storage.
+     */
+    private Data select(Data data) {
+        String key = Terms.normalize(data.getKey().getItem());
+        if (termFilter != null && Terms.isIndexable(key) && !termFilter.mightContain(key)) {
+            data.setValues(new Item[0]);
+            data.setCursor(0);
+            return data;
+        }
+        if (substringIndex != null && SubstringIndex.isSearchable(key)) {
+            int[] termIds = substringIndex.find(key, substringMaxTerms);
+            if (termIds != null) {
+                return engine.select(data, termIds);
+            }
+        }
+        return engine.select(data);
+    }
+
+    /**
+     *
+     * @return error code. The method returns {@link JHelp#OK} if streams are
+     * opened successfully, otherwise the method returns {@link JHelp#ERROR}.
+     */
+    @Override
+    public int connect() {
+        return connect(new String[0]);
+    }
+
+    /**
+     * Method opens storage engine of the server and builds the substring
+     * index if it's enabled. If the index can't be built, requests are
+     * served by the engine.
+     *
+     * @return error code. Method returns {@link jhelp.JHelp#READY} in success
+     * case. Otherwise method return {@link jhelp.JHelp#ERROR} or error code.
+     */
+    @Override
+    public int connect(String[] args) {
+        LOG.info("connect");
+        if (engine.open() != JHelp.READY) {
+            return JHelp.ERROR;
+        }
+        if (filterTerms) {
+            loadTermFilter();
+        }
+        if (substringSearch) {
+            long start = System.nanoTime();
+            substringIndex = SubstringIndex.load(engine);
+            if (substringIndex == null) {
+                errors.report("Substring index isn't loaded, terms are searched by engine");
+            } else {
+                engine.addListener(substringIndex);
+                LOG.info(() -> "substring index is loaded in "
+                        + (System.nanoTime() - start) / 1000000 + " ms, terms: "
+                        + substringIndex.size() + ", bytes: " + substringIndex.getMemoryBytes());
+            }
+        }
+        return JHelp.READY;
+    }
+
+    private void loadTermFilter() {
+        long start = System.nanoTime();
+        termFilter = TermFilter.load(engine, filterExpected, filterFalsePositive);
+        if (termFilter == null) {
+            errors.report("Term filter isn't loaded, all requests go to engine");
+            return;
+        }
+        engine.addListener(termFilter);
+        LOG.info(() -> "term filter is loaded in " + (System.nanoTime() - start) / 1000000
+                + " ms, bytes: " + termFilter.getMemoryBytes() + ", false positive rate: "
+                + termFilter.getFalsePositiveRate());
+    }
+
+    /**
+     * Method disconnects <code>ServerDb</code> object from a database and
+     * closes {@link java.net.ServerSocket} object.
+     *
+     * @return disconnect result. Method returns {@link #DISCONNECT} value, if
+     * the process ends successfully. Othewise the method returns error code,
+     * for example {@link #ERROR}.
+     * @see jhelp.JHelp#DISCONNECT
+     * @since 1.0
+     */
+    public int disconnect() {
+        LOG.info("disconnect");
+        engine.close();
+        return JHelp.DISCONNECT;
+    }
+
+    /**
+     * @return storage engine of the server.
+     */
+    public StorageEngine getEngine() {
+        return engine;
+    }
+
+    /**
+     * @return filter of absent terms or <code>null</code> if the filter is
+     * disabled.
+     */
+    public TermFilter getTermFilter() {
+        return termFilter;
+    }
+
+    /**
+     * @return substring index of terms or <code>null</code> if the index is
+     * disabled.
+     */
+    public SubstringIndex getSubstringIndex() {
+        return substringIndex;
+    }
+
+    /**
+     * The method returns pool of database connections. The pool provides
+     * metrics: numbers of active and idle connections, total wait time and
+     * number of failed checkouts.
+     *
+     * @return connection pool or <code>null</code> if the object isn't
+     * connected or doesn't use a database.
+     */
+    public ConnectionPool getPool() {
+        return engine instanceof JdbcStorageEngine
+                ? ((JdbcStorageEngine) engine).getPool() : null;
+    }
+
+    /**
+     * The method returns group committer of changing requests.
+     *
+     * @return write coalescer or <code>null</code> if group commit is
+     * disabled or the object doesn't use a database.
+     */
+    public WriteCoalescer getWriteCoalescer() {
+        return engine instanceof JdbcStorageEngine
+                ? ((JdbcStorageEngine) engine).getWriteCoalescer() : null;
+    }
+
+    /**
+     * The method creates a Properties object {@link jhelp.Configuration}
+     * for loading configuration parameters from a configuration file.
+     * 
+     * @param fileName - name of a configuration file
+     * @return Properties object
+     */
+    private Properties initConfig(String fileName) {
+        Properties commonConfig = null;
+        try {
+            commonConfig = new Configuration(fileName);
+        } catch (FileNotFoundException fe) {
+            errors.report("Configuration file " + fileName + " doesn't exist\n" + fe.getMessage());
+        } catch (IOException ie) {
+            errors.report(ie.getMessage());
+        }
+        return commonConfig;
+    }
+}
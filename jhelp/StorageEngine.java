@@ -0,0 +1,186 @@
+/*
+ * StorageEngine.java
+ */
+package jhelp;
+
+/**
+ * This interface presents storage of terms and definitions used by
+ * {@link jhelp.ServerDb}. An engine answers requests of {@link JHelp#SELECT},
+ * {@link JHelp#NEXT}, {@link JHelp#PREVIOUS}, {@link JHelp#INSERT},
+ * {@link JHelp#UPDATE} and {@link JHelp#DELETE} operations. Successful
+ * requests are returned with {@link JHelp#ORIGIN} status; requests which
+ * fail are reported to {@link ErrorReporter} and returned with
+ * {@link JHelp#ERROR} status. An engine may be called by many threads at
+ * once. Listeners added by {@link #addListener(Listener)} learn about terms
+ * and definitions changed by committed requests, so indexes of the server
+ * may follow the storage without reading it again.
+ *
+ * @see jhelp.JdbcStorageEngine
+ * @see jhelp.MemoryStorageEngine
+ */
+public interface StorageEngine {
+
+    /**
+     * Receiver of terms passed by {@link StorageEngine#scan(Visitor)}.
+     */
+    interface Visitor {
+
+        /**
+         * The method receives one term with all its definitions.
+         *
+         * @param termId identificator of the term.
+         * @param term text of the term.
+         * @param definitions definitions of the term in order of their
+         * identificators, with {@link JHelp#ORIGIN} state.
+         */
+        void visit(int termId, String term, Item[] definitions);
+    }
+
+    /**
+     * Receiver of changes of the storage. Events are sent after the change
+     * is committed, by the thread which committed it and outside of locks
+     * of the engine. A listener must be thread safe and quick.
+     */
+    interface Listener {
+
+        /**
+         * The method is called when a new term is stored.
+         *
+         * @param termId identificator of the term.
+         * @param term text of the term.
+         */
+        void termAdded(int termId, String term);
+
+        /**
+         * The method is called when a term is removed with its last
+         * definition.
+         *
+         * @param termId identificator of the term.
+         * @param term text of the term.
+         */
+        void termRemoved(int termId, String term);
+
+        /**
+         * The method is called when a new definition is stored or text of
+         * a definition is changed.
+         *
+         * @param definitionId identificator of the definition.
+         * @param text new text of the definition.
+         */
+        default void definitionAdded(int definitionId, String text) {
+        }
+
+        /**
+         * The method is called when a definition is removed.
+         *
+         * @param definitionId identificator of the definition.
+         */
+        default void definitionRemoved(int definitionId) {
+        }
+
+        /**
+         * The method is called when new definitions of a term are stored,
+         * after their {@link #definitionAdded(int, String)} events.
+         *
+         * @param termId identificator of the term.
+         * @param term text of the term.
+         */
+        default void termChanged(int termId, String term) {
+        }
+    }
+
+    /**
+     * The method prepares the engine for requests.
+     *
+     * @return {@link JHelp#READY} if the engine is ready, otherwise
+     * {@link JHelp#ERROR}.
+     */
+    int open();
+
+    /**
+     * The method releases resources of the engine. Requests aren't accepted
+     * after the call.
+     */
+    void close();
+
+    /**
+     * The method reads one page of definitions of terms containing the
+     * requested term. {@link JHelp#SELECT} request reads the first page,
+     * {@link JHelp#NEXT} and {@link JHelp#PREVIOUS} requests read the page
+     * after or before {@link Data#getCursor()} definition. Cursor of the
+     * result is identificator of the last definition of the page if more
+     * definitions may follow, otherwise 0.
+     *
+     * @param data request.
+     * @return page of definitions.
+     */
+    Data select(Data data);
+
+    /**
+     * The method reads one page of definitions of the given terms like
+     * {@link #select(Data)}. It's used when terms containing the requested
+     * term are found by an index of the server.
+     *
+     * @param data request.
+     * @param termIds identificators of terms.
+     * @return page of definitions.
+     */
+    Data select(Data data, int[] termIds);
+
+    /**
+     * The method adds definitions with {@link JHelp#INSERT} state to the
+     * term, the term is created if it doesn't exist.
+     *
+     * @param data request.
+     * @return the request with identificators of the term and new
+     * definitions.
+     */
+    Data insert(Data data);
+
+    /**
+     * The method changes text of definitions with {@link JHelp#UPDATE}
+     * state.
+     *
+     * @param data request.
+     * @return result of the request.
+     */
+    Data update(Data data);
+
+    /**
+     * The method removes definitions with {@link JHelp#DELETE} state and the
+     * term if it has no more definitions.
+     *
+     * @param data request.
+     * @return result of the request.
+     */
+    Data delete(Data data);
+
+    /**
+     * The method passes all terms of the storage to the visitor in order of
+     * their identificators.
+     *
+     * @param visitor receiver of terms.
+     * @return {@link JHelp#OK} if all terms are passed, otherwise
+     * {@link JHelp#ERROR}.
+     */
+    int scan(Visitor visitor);
+
+    /**
+     * The method passes definitions with the given identificators to the
+     * visitor grouped by their terms. Definitions which don't exist are
+     * skipped, a term may be passed several times.
+     *
+     * @param definitionIds identificators of definitions.
+     * @param visitor receiver of terms with the found definitions.
+     * @return {@link JHelp#OK} if the definitions are read, otherwise
+     * {@link JHelp#ERROR}.
+     */
+    int fetch(int[] definitionIds, Visitor visitor);
+
+    /**
+     * The method adds receiver of changes of the storage.
+     *
+     * @param listener receiver of changes.
+     */
+    void addListener(Listener listener);
+}
@@ -0,0 +1,114 @@
+/*
+ * StorageEvents.java
+ */
+package jhelp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class collects changes of the storage made by a request until the
+ * request is committed. Then the changes are sent to listeners of the
+ * engine by {@link #fire(List)} method, or dropped by {@link #clear()}
+ * method if the request is rolled back. An object is used by one thread.
+ *
+ * @see jhelp.StorageEngine.Listener
+ */
+public class StorageEvents implements StorageEngine.Listener {
+
+    private static final int TERM_ADDED = 1;
+    private static final int TERM_REMOVED = 2;
+    private static final int DEFINITION_ADDED = 3;
+    private static final int DEFINITION_REMOVED = 4;
+    private static final int TERM_CHANGED = 5;
+
+    private List<Event> events = new ArrayList<>();
+
+    @Override
+    public void termAdded(int termId, String term) {
+        events.add(new Event(TERM_ADDED, termId, term));
+    }
+
+    @Override
+    public void termRemoved(int termId, String term) {
+        events.add(new Event(TERM_REMOVED, termId, term));
+    }
+
+    @Override
+    public void definitionAdded(int definitionId, String text) {
+        events.add(new Event(DEFINITION_ADDED, definitionId, text));
+    }
+
+    @Override
+    public void definitionRemoved(int definitionId) {
+        events.add(new Event(DEFINITION_REMOVED, definitionId, null));
+    }
+
+    @Override
+    public void termChanged(int termId, String term) {
+        events.add(new Event(TERM_CHANGED, termId, term));
+    }
+
+    /**
+     * The method sends collected changes to the listeners in order they were
+     * made and clears the collection. A failure of a listener is reported to
+     * {@link ErrorReporter} and doesn't stop other listeners.
+     *
+     * @param listeners receivers of changes.
+     */
+    public void fire(List<StorageEngine.Listener> listeners) {
+        try {
+            for (StorageEngine.Listener listener : listeners) {
+                for (Event event : events) {
+                    try {
+                        event.send(listener);
+                    } catch (RuntimeException ex) {
+                        ErrorReporter.getInstance().report("Storage listener error: "
+                                + ex.getMessage(), ex);
+                    }
+                }
+            }
+        } finally {
+            clear();
+        }
+    }
+
+    /**
+     * The method drops collected changes.
+     */
+    public void clear() {
+        events.clear();
+    }
+
+    private static class Event {
+
+        private final int type;
+        private final int id;
+        private final String text;
+
+        Event(int type, int id, String text) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+        }
+
+        void send(StorageEngine.Listener listener) {
+            switch (type) {
+                case TERM_ADDED:
+                    listener.termAdded(id, text);
+                    break;
+                case TERM_REMOVED:
+                    listener.termRemoved(id, text);
+                    break;
+                case DEFINITION_ADDED:
+                    listener.definitionAdded(id, text);
+                    break;
+                case TERM_CHANGED:
+                    listener.termChanged(id, text);
+                    break;
+                default:
+                    listener.definitionRemoved(id);
+            }
+        }
+    }
+}
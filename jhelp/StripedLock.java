@@ -0,0 +1,165 @@
+/*
+ * StripedLock.java
+ */
+package jhelp;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * This class presents fixed set of read-write locks. A key is mapped to one
+ * of the locks by its hash code, so operations with different keys usually
+ * don't wait for each other, while memory used by the locks doesn't depend on
+ * number of keys.
+ */
+public class StripedLock {
+
+    private ReadWriteLock[] stripes;
+    private int mask;
+
+    /**
+     * Creates a new instance of <code>StripedLock</code>.
+     *
+     * @param count minimum number of locks. The number is rounded up to a
+     * power of two.
+     */
+    public StripedLock(int count) {
+        int size = Integer.highestOneBit(Math.max(1, count - 1)) << 1;
+        stripes = new ReadWriteLock[size];
+        for (int i = 0; i < size; ++i) {
+            stripes[i] = new ReentrantReadWriteLock();
+        }
+        mask = size - 1;
+    }
+
+    /**
+     * @param key key of shared operation.
+     * @return read lock for the key.
+     */
+    public Lock readLock(Object key) {
+        return stripe(key).readLock();
+    }
+
+    /**
+     * @param key key of exclusive operation.
+     * @return write lock for the key.
+     */
+    public Lock writeLock(Object key) {
+        return stripe(key).writeLock();
+    }
+
+    /**
+     * The method returns one lock for several keys. The lock takes write
+     * locks of the keys in order of stripes, so two operations with common
+     * keys can't wait for each other forever.
+     *
+     * @param keys keys of exclusive operation.
+     * @return write lock for all the keys.
+     */
+    public Lock writeLock(Collection<?> keys) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (Object key : keys) {
+            indexes.add(index(key));
+        }
+        Lock[] group = new Lock[indexes.size()];
+        int i = 0;
+        for (int index : indexes) {
+            group[i++] = stripes[index].writeLock();
+        }
+        return new GroupLock(group);
+    }
+
+    private ReadWriteLock stripe(Object key) {
+        return stripes[index(key)];
+    }
+
+    private int index(Object key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    /**
+     * Locks taken one by one in the given order and released in reverse
+     * order.
+     */
+    private static class GroupLock implements Lock {
+
+        private final Lock[] group;
+
+        GroupLock(Lock[] group) {
+            this.group = group;
+        }
+
+        @Override
+        public void lock() {
+            for (Lock lock : group) {
+                lock.lock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            for (int i = 0; i < group.length; ++i) {
+                try {
+                    group[i].lockInterruptibly();
+                } catch (InterruptedException ex) {
+                    release(i);
+                    throw ex;
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            for (int i = 0; i < group.length; ++i) {
+                if (!group[i].tryLock()) {
+                    release(i);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            for (int i = 0; i < group.length; ++i) {
+                boolean locked;
+                try {
+                    locked = group[i].tryLock(deadline - System.nanoTime(),
+                            TimeUnit.NANOSECONDS);
+                } catch (InterruptedException ex) {
+                    release(i);
+                    throw ex;
+                }
+                if (!locked) {
+                    release(i);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            release(group.length);
+        }
+
+        private void release(int count) {
+            for (int i = count - 1; i >= 0; --i) {
+                group[i].unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Condition of several locks");
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * SubstringIndex.java
+ */
+package jhelp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * This class presents in-memory generalized suffix array over normalized
+ * terms. Terms containing a text are found by two binary searches over
+ * sorted suffixes of all terms, so the time of search grows with logarithm
+ * of the dictionary size and number of found suffixes. Terms are matched as
+ * <code>TERM_KEY like '%text%'</code> predicate of {@link JdbcStorageEngine}
+ * matches them: both the term and the text are normalized by
+ * {@link Terms#normalize(String)}.
+ * <p>
+ * The suffix array is immutable. Terms added and removed after the array
+ * was built are kept in a small delta, which is checked by every search, so
+ * results follow changes made through the engine of this process. The
+ * index learns nothing about terms written by other servers sharing a
+ * database with {@link JdbcStorageEngine}, so it may be used only while
+ * this server is the only writer of the database. When the delta grows above a
+ * sixteenth of the array, a new array is built by a background thread;
+ * searches use the old array until the new one replaces it.
+ *
+ * @see jhelp.ServerDb
+ */
+public class SubstringIndex implements StorageEngine.Listener {
+
+    private static final Log LOG = Log.getLog(SubstringIndex.class);
+    private static final char SEPARATOR = '\u0000';
+    private static final int MIN_DELTA = 256;
+
+    private volatile State state;
+    private boolean building;
+    private volatile long rebuilds;
+
+    private SubstringIndex(Snapshot snapshot) {
+        state = new State(snapshot, Collections.emptyMap(), Collections.emptySet());
+    }
+
+    /**
+     * The method builds the index from all terms of the storage.
+     *
+     * @param engine storage of terms.
+     * @return index of terms or <code>null</code> if the storage can't be
+     * read.
+     */
+    public static SubstringIndex load(StorageEngine engine) {
+        List<String> keys = new ArrayList<>();
+        List<Integer> ids = new ArrayList<>();
+        int status = engine.scan((termId, term, definitions) -> {
+            keys.add(Terms.normalize(term));
+            ids.add(termId);
+        });
+        if (status != JHelp.OK) {
+            return null;
+        }
+        return new SubstringIndex(Snapshot.build(keys, ids));
+    }
+
+    /**
+     * The method shows whether terms containing the text may be found by
+     * the index: the text isn't empty and has no wildcards of
+     * <code>like</code> predicate.
+     *
+     * @param key normalized text.
+     * @return <code>true</code> if the index may be used.
+     */
+    public static boolean isSearchable(String key) {
+        return !key.isEmpty() && key.indexOf('%') < 0 && key.indexOf('_') < 0;
+    }
+
+    /**
+     * The method returns terms containing the text.
+     *
+     * @param key normalized text, see {@link #isSearchable(String)}.
+     * @param limit maximum number of terms.
+     * @return sorted identificators of terms or <code>null</code> if more
+     * than <code>limit</code> terms contain the text.
+     */
+    public int[] find(String key, int limit) {
+        State current = state;
+        Set<Integer> found = new HashSet<>();
+        if (!current.base.find(key, current.removed, found, limit)) {
+            return null;
+        }
+        for (Map.Entry<Integer, String> entry : current.added.entrySet()) {
+            if (entry.getValue().contains(key)) {
+                found.add(entry.getKey());
+                if (found.size() > limit) {
+                    return null;
+                }
+            }
+        }
+        int[] result = new int[found.size()];
+        int i = 0;
+        for (int id : found) {
+            result[i++] = id;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public synchronized void termAdded(int termId, String term) {
+        State current = state;
+        Map<Integer, String> added = new HashMap<>(current.added);
+        added.put(termId, Terms.normalize(term));
+        update(new State(current.base, added, current.removed));
+    }
+
+    /**
+     * The method removes the term from the delta. The identificator is
+     * remembered as removed even if the term is in the delta, because a
+     * running rebuild may put the term into the new array.
+     */
+    @Override
+    public synchronized void termRemoved(int termId, String term) {
+        State current = state;
+        Map<Integer, String> added = current.added;
+        if (added.containsKey(termId)) {
+            added = new HashMap<>(added);
+            added.remove(termId);
+        }
+        Set<Integer> removed = new HashSet<>(current.removed);
+        removed.add(termId);
+        update(new State(current.base, added, removed));
+    }
+
+    private void update(State changed) {
+        state = changed;
+        int delta = changed.added.size() + changed.removed.size();
+        if (!building && delta > Math.max(MIN_DELTA, changed.base.size() / 16)) {
+            building = true;
+            Thread builder = new Thread(() -> rebuild(changed), "substring-index");
+            builder.setDaemon(true);
+            builder.start();
+        }
+    }
+
+    /**
+     * The method builds a new array from the captured state and replaces
+     * the array. Changes received during the build stay in the delta.
+     */
+    private void rebuild(State captured) {
+        long start = System.nanoTime();
+        Snapshot snapshot;
+        try {
+            List<String> keys = new ArrayList<>();
+            List<Integer> ids = new ArrayList<>();
+            captured.base.collect(captured.removed, keys, ids);
+            for (Map.Entry<Integer, String> entry : captured.added.entrySet()) {
+                keys.add(entry.getValue());
+                ids.add(entry.getKey());
+            }
+            snapshot = Snapshot.build(keys, ids);
+        } catch (RuntimeException | OutOfMemoryError ex) {
+            ErrorReporter.getInstance().report("Substring index isn't rebuilt: "
+                    + ex.getMessage(), ex);
+            synchronized (this) {
+                building = false;
+            }
+            return;
+        }
+        synchronized (this) {
+            State current = state;
+            Map<Integer, String> added = new HashMap<>(current.added);
+            added.keySet().removeAll(captured.added.keySet());
+            Set<Integer> removed = new HashSet<>(current.removed);
+            removed.removeAll(captured.removed);
+            building = false;
+            ++rebuilds;
+            update(new State(snapshot, added, removed));
+        }
+        LOG.debug(() -> "substring index is rebuilt in " + (System.nanoTime() - start) / 1000000
+                + " ms, terms: " + snapshot.size());
+    }
+
+    /**
+     * @return approximate number of terms in the index, terms added and
+     * removed during a rebuild may be counted twice until the next rebuild.
+     */
+    public int size() {
+        State current = state;
+        return current.base.size() + current.added.size() - current.removed.size();
+    }
+
+    /**
+     * @return approximate size of the suffix array and texts of terms in
+     * bytes.
+     */
+    public long getMemoryBytes() {
+        return state.base.bytes();
+    }
+
+    /**
+     * @return number of finished rebuilds of the suffix array.
+     */
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    private static class State {
+
+        private final Snapshot base;
+        private final Map<Integer, String> added;
+        private final Set<Integer> removed;
+
+        State(Snapshot base, Map<Integer, String> added, Set<Integer> removed) {
+            this.base = base;
+            this.added = added;
+            this.removed = removed;
+        }
+    }
+
+    /**
+     * Immutable suffix array. Terms are written one after another into
+     * <code>text</code>, every term ends with {@link #SEPARATOR}.
+     * <code>starts</code> keeps offsets of terms in ascending order,
+     * <code>suffixes</code> keeps offsets of all suffixes sorted by their
+     * text up to the separator.
+     */
+    private static class Snapshot {
+
+        private final char[] text;
+        private final int[] starts;
+        private final int[] ids;
+        private final int[] suffixes;
+
+        private Snapshot(char[] text, int[] starts, int[] ids, int[] suffixes) {
+            this.text = text;
+            this.starts = starts;
+            this.ids = ids;
+            this.suffixes = suffixes;
+        }
+
+        static Snapshot build(List<String> keys, List<Integer> ids) {
+            int length = 0;
+            for (String key : keys) {
+                length += key.length() + 1;
+            }
+            char[] text = new char[length];
+            int[] starts = new int[keys.size()];
+            int[] termIds = new int[keys.size()];
+            int[] suffixes = new int[length - keys.size()];
+            int offset = 0;
+            int count = 0;
+            for (int i = 0; i < keys.size(); ++i) {
+                String key = keys.get(i);
+                starts[i] = offset;
+                termIds[i] = ids.get(i);
+                key.getChars(0, key.length(), text, offset);
+                for (int k = 0; k < key.length(); ++k) {
+                    suffixes[count++] = offset + k;
+                }
+                offset += key.length();
+                text[offset++] = SEPARATOR;
+            }
+            Snapshot snapshot = new Snapshot(text, starts, termIds, suffixes);
+            snapshot.sort(0, suffixes.length, 0);
+            return snapshot;
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        long bytes() {
+            return 2L * text.length + 4L * (starts.length + ids.length + suffixes.length);
+        }
+
+        /**
+         * The method returns character of the suffix at the depth, or -1 at
+         * the end of the term.
+         */
+        private int charAt(int suffix, int depth) {
+            char c = text[suffix + depth];
+            return c == SEPARATOR ? -1 : c;
+        }
+
+        /**
+         * Three-way radix quicksort of suffixes <code>[from, to)</code>
+         * which have equal first <code>depth</code> characters.
+         */
+        private void sort(int from, int to, int depth) {
+            while (to - from > 1) {
+                int pivot = charAt(suffixes[from + (to - from) / 2], depth);
+                int lt = from;
+                int gt = to - 1;
+                int i = from;
+                while (i <= gt) {
+                    int c = charAt(suffixes[i], depth);
+                    if (c < pivot) {
+                        swap(lt++, i++);
+                    } else if (c > pivot) {
+                        swap(i, gt--);
+                    } else {
+                        ++i;
+                    }
+                }
+                sort(from, lt, depth);
+                sort(gt + 1, to, depth);
+                if (pivot < 0) {
+                    return;
+                }
+                from = lt;
+                to = gt + 1;
+                ++depth;
+            }
+        }
+
+        private void swap(int i, int j) {
+            int tmp = suffixes[i];
+            suffixes[i] = suffixes[j];
+            suffixes[j] = tmp;
+        }
+
+        /**
+         * The method compares the first characters of the suffix with the
+         * key.
+         *
+         * @return negative value, zero or positive value if the suffix is
+         * less than the key, starts with the key or is greater than the key.
+         */
+        private int compare(int suffix, String key) {
+            for (int k = 0; k < key.length(); ++k) {
+                int c = charAt(suffix, k);
+                if (c != key.charAt(k)) {
+                    return c - key.charAt(k);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * The method returns index of the first suffix for which the
+         * comparison with the key is not less than <code>bound</code>.
+         */
+        private int search(String key, int bound) {
+            int low = 0;
+            int high = suffixes.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(suffixes[middle], key) < bound) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * The method adds identificators of terms containing the key.
+         *
+         * @return <code>false</code> if more than <code>limit</code> terms
+         * are found.
+         */
+        boolean find(String key, Set<Integer> removed, Set<Integer> found, int limit) {
+            int to = search(key, 1);
+            for (int i = search(key, 0); i < to; ++i) {
+                int term = Arrays.binarySearch(starts, suffixes[i]);
+                int id = ids[term >= 0 ? term : -term - 2];
+                if (!removed.contains(id) && found.add(id) && found.size() > limit) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The method adds texts and identificators of terms which aren't
+         * removed.
+         */
+        void collect(Set<Integer> removed, List<String> keys, List<Integer> result) {
+            for (int i = 0; i < ids.length; ++i) {
+                if (!removed.contains(ids[i])) {
+                    int end = i + 1 < starts.length ? starts[i + 1] : text.length;
+                    keys.add(new String(text, starts[i], end - starts[i] - 1));
+                    result.add(ids[i]);
+                }
+            }
+        }
+    }
+}
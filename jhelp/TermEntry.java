@@ -0,0 +1,135 @@
+/*
+ * TermEntry.java
+ */
+package jhelp;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * This class presents a term kept by storage engines without a database:
+ * text of the term and sorted identificators of its definitions. The class
+ * isn't thread safe, engines guard terms by their own locks.
+ *
+ * @see jhelp.MemoryStorageEngine
+ * @see jhelp.LogStorageEngine
+ */
+class TermEntry {
+
+    final int id;
+    final String text;
+    final String key;
+    int[] definitions = new int[4];
+    int size;
+
+    TermEntry(int id, String text) {
+        this.id = id;
+        this.text = text;
+        this.key = Terms.normalize(text);
+    }
+
+    /**
+     * The method adds identificator of a definition keeping the order.
+     */
+    void add(int definitionId) {
+        if (size == definitions.length) {
+            definitions = Arrays.copyOf(definitions, size << 1);
+        }
+        int i = size;
+        while (i > 0 && definitions[i - 1] > definitionId) {
+            definitions[i] = definitions[i - 1];
+            --i;
+        }
+        definitions[i] = definitionId;
+        ++size;
+    }
+
+    void remove(int definitionId) {
+        int i = Arrays.binarySearch(definitions, 0, size, definitionId);
+        if (i >= 0) {
+            System.arraycopy(definitions, i + 1, definitions, i, size - i - 1);
+            --size;
+        }
+    }
+
+    /**
+     * The method returns sorted identificators of definitions of terms
+     * matching the pattern after or before the cursor, see
+     * {@link #like(String, String)}.
+     *
+     * @param terms terms to search.
+     * @param pattern normalized requested term.
+     * @param cursor identificator of definition the page starts after or
+     * before.
+     * @param backward <code>true</code> if definitions before the cursor are
+     * needed.
+     * @return identificators in ascending order.
+     */
+    static int[] matches(Collection<TermEntry> terms, String pattern, int cursor,
+            boolean backward) {
+        int[] result = new int[16];
+        int count = 0;
+        boolean wildcards = pattern.indexOf('%') >= 0 || pattern.indexOf('_') >= 0;
+        for (TermEntry term : terms) {
+            if (wildcards ? !like(term.key, pattern) : !term.key.contains(pattern)) {
+                continue;
+            }
+            for (int i = 0; i < term.size; ++i) {
+                int id = term.definitions[i];
+                if (backward ? id < cursor : id > cursor) {
+                    if (count == result.length) {
+                        result = Arrays.copyOf(result, count << 1);
+                    }
+                    result[count++] = id;
+                }
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * The method shows whether the key matches <code>like '%pattern%'</code>
+     * predicate used by {@link JdbcStorageEngine}: <code>%</code> in the
+     * pattern matches any text, <code>_</code> matches one character.
+     *
+     * @param key normalized term.
+     * @param pattern normalized requested term.
+     * @return <code>true</code> if the key contains text matching the
+     * pattern.
+     */
+    static boolean like(String key, String pattern) {
+        // a mismatch restarts the pattern after the last % one character
+        // later in the key, the leading % is implied
+        int k = 0;
+        int p = 0;
+        int starP = 0;
+        int starK = 0;
+        while (p < pattern.length()) {
+            char c = pattern.charAt(p);
+            if (c == '%') {
+                starP = ++p;
+                starK = k;
+            } else if (k < key.length() && (c == '_' || c == key.charAt(k))) {
+                ++p;
+                ++k;
+            } else if (starK < key.length()) {
+                p = starP;
+                k = ++starK;
+            } else {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The method returns terms ordered by identificators.
+     */
+    static TermEntry[] sorted(Collection<TermEntry> terms) {
+        TermEntry[] result = terms.toArray(new TermEntry[terms.size()]);
+        Arrays.sort(result, (a, b) -> Integer.compare(a.id, b.id));
+        return result;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * TermFilter.java
+ */
+package jhelp;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * This class presents counting Bloom filter over trigrams of normalized
+ * terms. A text is contained in some term only if all trigrams of the text
+ * are contained in terms, so if the filter has no trigram of the text, no
+ * term contains the text and the storage needn't be asked. The filter never
+ * answers "absent" for a present trigram; a trigram which is absent may be
+ * reported as present with probability returned by
+ * {@link #getFalsePositiveRate()}.
+ * <p>
+ * Every trigram increments <code>hashes</code> counters of four bits chosen
+ * by double hashing, sixteen counters are packed into one
+ * <code>long</code>. Counters are decremented when a term is removed, so the
+ * filter follows the storage as {@link StorageEngine.Listener}. A counter
+ * which reached fifteen is never changed again, as a decrement of an
+ * overflowed counter could make a present trigram absent. Counters are
+ * changed by compare-and-set without locks. Requests served by
+ * {@link Server} add a term to the filter before they can remove it:
+ * {@link JHelp#INSERT} holds the write lock of its term,
+ * {@link JHelp#UPDATE} and {@link JHelp#DELETE} hold the write locks of the
+ * terms owning their definitions, and engines send events before the
+ * request returns.
+ * <p>
+ * The filter learns only changes made through the engine of this process.
+ * A term inserted by another server sharing a database with
+ * {@link JdbcStorageEngine} stays absent in the filter and isn't found, so
+ * the filter may be used only while this server is the only writer of the
+ * database.
+ *
+ * @see jhelp.Terms#trigrams(String)
+ */
+public class TermFilter implements StorageEngine.Listener {
+
+    private static final int MAX_COUNT = 15;
+
+    private final AtomicLongArray counters;
+    private final long size;
+    private final int hashes;
+    private final AtomicLong used = new AtomicLong();
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a new empty instance of <code>TermFilter</code>.
+     *
+     * @param expected expected number of distinct trigrams.
+     * @param falsePositiveRate wanted probability of a false positive
+     * answer for the expected number of trigrams.
+     */
+    public TermFilter(long expected, double falsePositiveRate) {
+        double bits = -Math.max(1, expected) * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2));
+        int length = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (long) bits / 16 + 1));
+        counters = new AtomicLongArray(length);
+        size = 16L * length;
+        hashes = Math.max(1, (int) Math.round(bits / Math.max(1, expected) * Math.log(2)));
+    }
+
+    /**
+     * The method builds the filter from all terms of the storage. The size
+     * of the filter is chosen for the greater of the expected number and
+     * twice the number of trigrams of the storage.
+     *
+     * @param engine storage of terms.
+     * @param expected expected number of distinct trigrams.
+     * @param falsePositiveRate wanted probability of a false positive.
+     * @return filter or <code>null</code> if the storage can't be read.
+     */
+    public static TermFilter load(StorageEngine engine, long expected,
+            double falsePositiveRate) {
+        long[] grams = new long[1];
+        if (engine.scan((termId, term, definitions)
+                -> grams[0] += Terms.trigrams(Terms.normalize(term)).size()) != JHelp.OK) {
+            return null;
+        }
+        TermFilter filter = new TermFilter(Math.max(expected, 2 * grams[0]), falsePositiveRate);
+        int status = engine.scan((termId, term, definitions) -> filter.termAdded(termId, term));
+        return status == JHelp.OK ? filter : null;
+    }
+
+    /**
+     * The method shows whether terms may contain the text.
+     *
+     * @param key normalized text, it should have at least
+     * {@link Terms#GRAM_LENGTH} characters and no wildcards, see
+     * {@link Terms#isIndexable(String)}.
+     * @return <code>false</code> if no term contains the text, otherwise
+     * <code>true</code>.
+     */
+    public boolean mightContain(String key) {
+        lookups.incrementAndGet();
+        for (String gram : Terms.trigrams(key)) {
+            long hash = hash(gram);
+            for (int i = 0; i < hashes; ++i) {
+                if (get(index(hash, i)) == 0) {
+                    misses.incrementAndGet();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void termAdded(int termId, String term) {
+        change(Terms.trigrams(Terms.normalize(term)), 1);
+    }
+
+    @Override
+    public void termRemoved(int termId, String term) {
+        change(Terms.trigrams(Terms.normalize(term)), -1);
+    }
+
+    private void change(Set<String> grams, int delta) {
+        for (String gram : grams) {
+            long hash = hash(gram);
+            for (int i = 0; i < hashes; ++i) {
+                add(index(hash, i), delta);
+            }
+        }
+    }
+
+    private int get(long index) {
+        return (int) (counters.get((int) (index >>> 4)) >>> ((index & 15) << 2)) & MAX_COUNT;
+    }
+
+    private void add(long index, int delta) {
+        int slot = (int) (index >>> 4);
+        int shift = (int) (index & 15) << 2;
+        while (true) {
+            long word = counters.get(slot);
+            int count = (int) (word >>> shift) & MAX_COUNT;
+            if (count == MAX_COUNT || count + delta < 0) {
+                return;
+            }
+            long changed = word + ((long) delta << shift);
+            if (counters.compareAndSet(slot, word, changed)) {
+                if (count == 0) {
+                    used.incrementAndGet();
+                } else if (count + delta == 0) {
+                    used.decrementAndGet();
+                }
+                return;
+            }
+        }
+    }
+
+    private long index(long hash, int i) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return Math.floorMod(h1 + (long) i * h2, size);
+    }
+
+    /**
+     * The method returns 64-bit FNV-1a hash of characters of the text mixed
+     * by the finalizer of MurmurHash3.
+     */
+    private static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); ++i) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * The method estimates probability of a false positive answer for one
+     * trigram by the share of counters which aren't zero.
+     *
+     * @return probability from 0 to 1.
+     */
+    public double getFalsePositiveRate() {
+        return Math.pow((double) used.get() / size, hashes);
+    }
+
+    /**
+     * @return size of counters in bytes.
+     */
+    public long getMemoryBytes() {
+        return size / 2;
+    }
+
+    /**
+     * @return number of checked texts.
+     */
+    public long getLookups() {
+        return lookups.get();
+    }
+
+    /**
+     * @return number of texts found absent.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+}
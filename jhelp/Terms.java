@@ -0,0 +1,70 @@
+/*
+ * Terms.java
+ */
+package jhelp;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This class contains helper methods for terms of the dictionary.
+ */
+public final class Terms {
+
+    /**
+     * Length of n-grams used by term indexes.
+     */
+    public static final int GRAM_LENGTH = 3;
+
+    private Terms() {
+    }
+
+    /**
+     * The method returns normalized form of a term: the term without leading
+     * and trailing spaces in lower case. Normalized term is used as a key for
+     * locks, caches and indexes of the server.
+     *
+     * @param term term or <code>null</code>.
+     * @return normalized term. The method returns an empty string for
+     * <code>null</code> term.
+     */
+    public static String normalize(String term) {
+        if (term == null) {
+            return "";
+        }
+        return term.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * The method returns distinct trigrams of a term in lower case. A term
+     * shorter than {@link #GRAM_LENGTH} has no trigrams.
+     *
+     * @param term term or pattern.
+     * @return set of trigrams in order of their first occurrence.
+     */
+    public static Set<String> trigrams(String term) {
+        Set<String> grams = new LinkedHashSet<>();
+        if (term == null) {
+            return grams;
+        }
+        String lower = term.toLowerCase(Locale.ROOT);
+        for (int i = 0; i + GRAM_LENGTH <= lower.length(); ++i) {
+            grams.add(lower.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * The method shows whether a term may be searched by its trigrams: the
+     * term is long enough and has no wildcards of <code>like</code>
+     * predicate.
+     *
+     * @param term requested term.
+     * @return <code>true</code> if trigram index may be used for the term.
+     */
+    public static boolean isIndexable(String term) {
+        return term != null && term.length() >= GRAM_LENGTH
+                && term.indexOf('%') < 0 && term.indexOf('_') < 0;
+    }
+}
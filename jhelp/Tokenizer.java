@@ -0,0 +1,113 @@
+/*
+ * Tokenizer.java
+ */
+package jhelp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * This class splits texts of definitions into words for the full-text
+ * index. A word is a sequence of letters and digits in lower case, letter
+ * <code>ё</code> is replaced by <code>е</code>. Frequent English and
+ * Russian words are dropped. Endings of words are removed by a light
+ * stemmer, so different forms of a word usually give the same token: the
+ * Russian stemmer is used for words with Cyrillic letters, the English one
+ * for other words. A stem keeps at least three letters.
+ *
+ * @see jhelp.FullTextIndex
+ */
+public final class Tokenizer {
+
+    private static final int MIN_STEM = 3;
+    private static final Set<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in",
+            "is", "it", "of", "on", "or", "that", "the", "this", "to", "was", "with",
+            "а", "в", "во", "да", "для", "до", "же", "за", "и", "из", "или", "к",
+            "как", "ли", "на", "не", "но", "о", "об", "от", "по", "при", "с", "со",
+            "то", "у", "что", "это"));
+    private static final String[] RUSSIAN_ENDINGS = {
+        "иями", "ями", "ами", "ого", "его", "ому", "ему", "ыми", "ими", "ешь",
+        "ете", "ишь", "ите", "ать", "ять", "ить", "еть", "ия", "ие", "ий", "ию",
+        "ая", "яя", "ое", "ее", "ые", "ый", "ой", "ом", "ем", "ам", "ям", "ах",
+        "ях", "ов", "ев", "ей", "ую", "юю", "ью", "ть", "ет", "ит", "ут", "ют",
+        "ат", "ят", "а", "я", "о", "е", "ы", "и", "у", "ю", "ь", "й"};
+    private static final String[] ENGLISH_ENDINGS = {
+        "ations", "ation", "ness", "ment", "ings", "ing", "ies", "ied", "ed",
+        "es", "ly", "s"};
+
+    private Tokenizer() {
+    }
+
+    /**
+     * The method returns tokens of a text in order of their occurrence.
+     *
+     * @param text text or <code>null</code>.
+     * @return stemmed words without frequent words, the list may contain
+     * equal tokens.
+     */
+    public static List<String> tokens(String text) {
+        List<String> result = new ArrayList<>();
+        if (text == null) {
+            return result;
+        }
+        String lower = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= lower.length(); ++i) {
+            boolean letter = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                String word = lower.substring(start, i);
+                if (!STOP_WORDS.contains(word)) {
+                    result.add(stem(word));
+                }
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The method removes the longest known ending of a word.
+     *
+     * @param word word in lower case.
+     * @return stem of the word.
+     */
+    public static String stem(String word) {
+        String[] endings = isCyrillic(word) ? RUSSIAN_ENDINGS : ENGLISH_ENDINGS;
+        for (String ending : endings) {
+            if (word.endsWith(ending) && word.length() - ending.length() >= MIN_STEM) {
+                String stem = word.substring(0, word.length() - ending.length());
+                return ending.startsWith("ing") || ending.equals("ed") ? undouble(stem) : stem;
+            }
+        }
+        return word;
+    }
+
+    /**
+     * The method removes the last letter of a doubled consonant, so
+     * <code>running</code> and <code>runs</code> give the same stem.
+     */
+    private static String undouble(String stem) {
+        int n = stem.length();
+        char last = stem.charAt(n - 1);
+        if (n > MIN_STEM && last == stem.charAt(n - 2) && "aeioulsz".indexOf(last) < 0) {
+            return stem.substring(0, n - 1);
+        }
+        return stem;
+    }
+
+    private static boolean isCyrillic(String word) {
+        for (int i = 0; i < word.length(); ++i) {
+            if (Character.UnicodeBlock.of(word.charAt(i)) == Character.UnicodeBlock.CYRILLIC) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * WireProtocol.java
+ */
+package jhelp;
+
+import java.io.IOException;
+
+/**
+ * Interface for protocols transporting {@link jhelp.Data} objects between
+ * {@link jhelp.Client} and {@link jhelp.ClientThread} objects. Implementations
+ * are {@link jhelp.SerialProtocol} based on Java serialization and
+ * {@link jhelp.BinaryProtocol} based on {@link jhelp.DataCodec}. A protocol is
+ * chosen by {@link jhelp.Handshake} when connection is opened.
+ */
+public interface WireProtocol {
+
+    /**
+     * Method reads next object from the connection.
+     * @return received object.
+     * @throws IOException if the connection is closed or the object can't be
+     * read.
+     */
+    Data read() throws IOException;
+
+    /**
+     * Method writes object to the connection. The method may be called by
+     * several threads at once.
+     * @param data object to send.
+     * @throws IOException if the object can't be sent.
+     */
+    void write(Data data) throws IOException;
+
+    /**
+     * @return name of the protocol.
+     */
+    String getName();
+}
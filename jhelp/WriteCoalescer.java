@@ -0,0 +1,277 @@
+/*
+ * WriteCoalescer.java
+ */
+package jhelp;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class groups changing requests of many clients into common database
+ * transactions. A request passed to {@link #submit(Data)} method waits in the
+ * queue; the committer thread takes the first waiting request, collects
+ * requests which come during the group window (but no more than group size),
+ * executes all of them on one connection and commits them at once. Every
+ * request gets its own result. If the group fails, it's rolled back and its
+ * requests are executed again one by one, each in its own transaction, so a
+ * bad request doesn't fail the others.
+ *
+ * @see jhelp.JdbcStorageEngine
+ */
+public class WriteCoalescer implements Runnable {
+
+    /**
+     * Executor of one changing request within a transaction. The executor
+     * doesn't commit.
+     */
+    public interface Writer {
+
+        /**
+         * The method executes the request on the connection.
+         *
+         * @param con connection with disabled auto-commit mode.
+         * @param data changing request.
+         * @return result of the request.
+         * @throws SQLException if the request fails.
+         */
+        Data write(PooledConnection con, Data data) throws SQLException;
+
+        /**
+         * The method is called after the transaction of the calling thread
+         * is committed.
+         */
+        default void committed() {
+        }
+
+        /**
+         * The method is called after the transaction of the calling thread
+         * fails and is rolled back.
+         */
+        default void rolledBack() {
+        }
+    }
+
+    private static final Log LOG = Log.getLog(WriteCoalescer.class);
+
+    private ConnectionPool pool;
+    private Writer writer;
+    private int groupSize;
+    private long window;
+    private BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private volatile boolean closed;
+    private Thread committer;
+    private ErrorReporter errors = ErrorReporter.getInstance();
+    private AtomicLong groups = new AtomicLong();
+    private AtomicLong writes = new AtomicLong();
+    private AtomicLong fallbacks = new AtomicLong();
+
+    /**
+     * Creates a new instance of <code>WriteCoalescer</code> and starts its
+     * committer thread.
+     *
+     * @param pool pool of database connections.
+     * @param writer executor of requests.
+     * @param groupSize maximum number of requests in one transaction.
+     * @param window time in microseconds the committer waits for more
+     * requests after the first one.
+     */
+    public WriteCoalescer(ConnectionPool pool, Writer writer, int groupSize, long window) {
+        this.pool = pool;
+        this.writer = writer;
+        this.groupSize = Math.max(1, groupSize);
+        this.window = TimeUnit.MICROSECONDS.toNanos(window);
+        committer = new Thread(this, "write-coalescer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * The method passes the request to the committer thread and waits until
+     * its group is committed.
+     *
+     * @param data changing request.
+     * @return result of the request. The result has {@link JHelp#ERROR}
+     * status if the request fails.
+     */
+    public Data submit(Data data) {
+        Request request = new Request(data);
+        queue.add(request);
+        if (closed) {
+            awaitCommitter();
+            if (queue.remove(request)) {
+                execute(request);
+                return request.result;
+            }
+        }
+        request.await();
+        return request.result;
+    }
+
+    @Override
+    public void run() {
+        List<Request> group = new ArrayList<>(groupSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                long deadline = System.nanoTime() + window;
+                while (group.size() < groupSize) {
+                    long left = deadline - System.nanoTime();
+                    Request next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    group.add(next);
+                }
+                commit(group);
+            } catch (InterruptedException ex) {
+                closed = true;
+            } finally {
+                for (Request request : group) {
+                    request.done();
+                }
+                group.clear();
+            }
+        }
+    }
+
+    /**
+     * The method executes the group in one transaction. If the transaction
+     * fails, requests of the group are executed one by one.
+     */
+    private void commit(List<Request> group) {
+        groups.incrementAndGet();
+        writes.addAndGet(group.size());
+        if (group.size() > 1) {
+            try (PooledConnection con = pool.acquire()) {
+                Connection connection = con.getConnection();
+                connection.setAutoCommit(false);
+                for (Request request : group) {
+                    request.result = writer.write(con, request.data.copy());
+                }
+                connection.commit();
+                writer.committed();
+                return;
+            } catch (SQLException | RuntimeException ex) {
+                writer.rolledBack();
+                fallbacks.incrementAndGet();
+                LOG.warn(() -> "group of " + group.size() + " writes failed, "
+                        + "commit them one by one: " + ex.getMessage());
+            }
+        }
+        for (Request request : group) {
+            execute(request);
+        }
+    }
+
+    private void execute(Request request) {
+        try (PooledConnection con = pool.acquire()) {
+            con.getConnection().setAutoCommit(false);
+            request.result = writer.write(con, request.data);
+            con.getConnection().commit();
+            writer.committed();
+        } catch (SQLException | RuntimeException ex) {
+            writer.rolledBack();
+            errors.report("SQL-write error: " + ex.getMessage(), ex);
+            request.data.setOperation(JHelp.ERROR);
+            request.result = request.data;
+        }
+    }
+
+    /**
+     * The method stops grouping of requests. Waiting requests are committed
+     * before the committer thread ends; requests submitted later are
+     * executed by calling threads after the committer ends.
+     *
+     * @param timeout maximum time in milliseconds to wait for the committer.
+     */
+    public void close(long timeout) {
+        closed = true;
+        try {
+            committer.join(timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitCommitter() {
+        try {
+            committer.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return number of committed groups.
+     */
+    public long getGroups() {
+        return groups.get();
+    }
+
+    /**
+     * @return number of requests passed through groups.
+     */
+    public long getWrites() {
+        return writes.get();
+    }
+
+    /**
+     * @return number of groups which failed and were executed one by one.
+     */
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+    /**
+     * @return number of requests waiting for a group.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    private static class Request {
+
+        private Data data;
+        private Data result;
+        private CountDownLatch latch = new CountDownLatch(1);
+
+        Request(Data data) {
+            this.data = data;
+        }
+
+        void await() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    latch.await();
+                    break;
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        void done() {
+            if (result == null) {
+                data.setOperation(JHelp.ERROR);
+                result = data;
+            }
+            latch.countDown();
+        }
+    }
+}
@@ -1 +1 @@
-script=select count(*) from tblDefinitions d where d.term_id = ?
\ No newline at end of file
+script=select count(*) from tblDefinitions where TERM_ID = ?
\ No newline at end of file
@@ -0,0 +1 @@
+script=select count(*) from tblTermGrams
\ No newline at end of file
@@ -0,0 +1 @@
+script=create table tblSchemaVersion (VERSION int not null, APPLIED timestamp not null default current_timestamp, constraint pkSchemaVersion primary key (VERSION))
\ No newline at end of file
@@ -0,0 +1 @@
+script=delete from tblTermGrams where term_id = ?
\ No newline at end of file
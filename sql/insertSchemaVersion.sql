@@ -0,0 +1 @@
+script=insert into tblSchemaVersion (VERSION) values (?)
\ No newline at end of file
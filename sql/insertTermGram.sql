@@ -0,0 +1 @@
+script=insert into tblTermGrams values (?, ?)
\ No newline at end of file
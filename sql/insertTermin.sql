@@ -1 +1 @@
-script=insert into tblTerms values (default, ?)
\ No newline at end of file
+script=insert into tblTerms (TERM, TERM_KEY) values (?, ?)
\ No newline at end of file
@@ -0,0 +1,4 @@
+script1=create table tblTerms (ID int not null generated by default as identity, TERM varchar(1024) not null, constraint pkTerms primary key (ID))
+script2=create table tblDefinitions (ID int not null generated by default as identity, DEFINITION varchar(32000) not null, TERM_ID int not null, constraint pkDefinitions primary key (ID))
+script3=create table tblTermGrams (GRAM varchar(3) not null, TERM_ID int not null)
+script4=create index idxTermGrams on tblTermGrams (GRAM, TERM_ID)
\ No newline at end of file
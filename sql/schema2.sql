@@ -0,0 +1,7 @@
+script1=alter table tblTerms add column TERM_KEY varchar(1024)
+script2=update tblTerms set TERM_KEY = lower(trim(TERM))
+script3=update tblDefinitions d set d.TERM_ID = (select min(k.ID) from tblTerms t join tblTerms k on (k.TERM_KEY = t.TERM_KEY) where t.ID = d.TERM_ID) where d.TERM_ID in (select t.ID from tblTerms t where t.ID > (select min(k.ID) from tblTerms k where k.TERM_KEY = t.TERM_KEY))
+script4=delete from tblTermGrams where TERM_ID in (select t.ID from tblTerms t where t.ID > (select min(k.ID) from tblTerms k where k.TERM_KEY = t.TERM_KEY))
+script5=delete from tblTerms t where t.ID > (select min(k.ID) from tblTerms k where k.TERM_KEY = t.TERM_KEY)
+script6=alter table tblTerms alter column TERM_KEY not null
+script7=alter table tblTerms add constraint ukTermKey unique (TERM_KEY)
\ No newline at end of file
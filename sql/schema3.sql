@@ -0,0 +1,5 @@
+script1=delete from tblDefinitions where TERM_ID is null or TERM_ID not in (select ID from tblTerms)
+script2=delete from tblTermGrams where TERM_ID not in (select ID from tblTerms)
+script3=alter table tblDefinitions alter column TERM_ID not null
+script4=alter table tblDefinitions add constraint fkDefinitionsTerm foreign key (TERM_ID) references tblTerms (ID)
+script5=alter table tblTermGrams add constraint fkTermGramsTerm foreign key (TERM_ID) references tblTerms (ID)
\ No newline at end of file
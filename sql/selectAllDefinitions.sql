@@ -0,0 +1 @@
+script=select t.id as term_id, t.term, d.id, d.definition from tblTerms t left join tblDefinitions d on (d.TERM_ID = t.ID) order by t.id, d.id
\ No newline at end of file
@@ -0,0 +1 @@
+script=select id, term from tblTerms
\ No newline at end of file
@@ -0,0 +1 @@
+script=select d.id, d.definition, t.id as trem_id from tblDefinitions d join tblTerms t on (d.TERM_ID = t.ID) where t.ID in (select g.TERM_ID from tblTermGrams g where g.GRAM = ?) and t.ID in (select g.TERM_ID from tblTermGrams g where g.GRAM = ?) and t.TERM_KEY like ? and d.id > ? order by d.id
\ No newline at end of file
@@ -0,0 +1 @@
+script=select id, definition, TERM_ID as trem_id from tblDefinitions where TERM_ID in (%s) and id > ? order by id
\ No newline at end of file
@@ -0,0 +1 @@
+script=select d.id, d.definition, t.id as term_id, t.term from tblDefinitions d join tblTerms t on (d.TERM_ID = t.ID) where d.id in (%s) order by t.id, d.id
\ No newline at end of file
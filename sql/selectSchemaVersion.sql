@@ -0,0 +1 @@
+script=select max(VERSION) from tblSchemaVersion
\ No newline at end of file
@@ -1 +1 @@
-script=select id, term from tblTerms where lower(term) like lower(?)
\ No newline at end of file
+script=select id, term from tblTerms where TERM_KEY = ?
\ No newline at end of file
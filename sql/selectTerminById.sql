@@ -0,0 +1 @@
+script=select term from tblTerms where id = ?
\ No newline at end of file